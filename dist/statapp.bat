@@ -0,0 +1,16 @@
+@echo off
+rem Launcher for the DPT-StatApp-Compiler. When "statapp train <project>" has
+rem written a class-data-sharing archive next to the JAR file, it is mapped on
+rem start up so the compiler classes do not have to be loaded again.
+rem
+rem Extra options for the Java VM, for example JIT or heap settings, can be
+rem passed in STATAPP_JAVA_OPTS.
+setlocal
+set DIR=%~dp0
+set JAVA=java
+if defined JAVA_HOME set JAVA="%JAVA_HOME%\bin\java"
+set OPTS=
+if defined STATAPP_JAVA_OPTS set OPTS=%STATAPP_JAVA_OPTS%
+
+if exist "%DIR%DPT-StatApp-Compiler.jsa" set OPTS=%OPTS% -XX:SharedArchiveFile="%DIR%DPT-StatApp-Compiler.jsa" -Xshare:auto -Xlog:cds=off
+%JAVA% %OPTS% -cp "%DIR%DPT-StatApp-Compiler.jar" dpt.statapp.compiler.DPTStatAppCompiler %*
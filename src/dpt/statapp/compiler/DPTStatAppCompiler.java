@@ -32,13 +32,23 @@
 package dpt.statapp.compiler;
 
 import dpt.statapp.compiler.compilers.AppCompiler;
+import dpt.statapp.compiler.compilers.BatchCompiler;
+import dpt.statapp.compiler.compilers.ClassDataTrainer;
+import dpt.statapp.compiler.compilers.SnapshotDiff;
+import dpt.statapp.compiler.compilers.SourceChecker;
 import dpt.statapp.compiler.config.AppGenerator;
 import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.MemoryHelpers;
 import dpt.statapp.compiler.output.ErrorFormatter;
 import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compressor.HtmlProfile;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Main application entry point. 
@@ -57,7 +67,43 @@ public class DPTStatAppCompiler {
     }
 
     public static void main(String[] args) {
-        if(args.length != 3) {
+        /* Checking only needs the project directory */
+        if(args.length == 2 && args[0].equals("check")) {
+            String filepath = checkAndFormatFilePath(args[1]);
+            if(filepath == null) System.exit(1);
+            
+            SourceChecker checker = new SourceChecker(filepath);
+            System.exit(checker.check() ? 0 : 1);
+        }
+        
+        /* Training only needs the project directory to compile */
+        if(args.length == 2 && args[0].equals("train")) {
+            String filepath = checkAndFormatFilePath(args[1]);
+            if(filepath == null) System.exit(1);
+            
+            ClassDataTrainer trainer = new ClassDataTrainer(filepath);
+            System.exit(trainer.train() ? 0 : 1);
+        }
+        
+        /* Separate the '--name value' options from the other arguments */
+        Map<String, String> options = new HashMap<>();
+        List<String> arguments = new ArrayList<>();
+        for(int i = 0; i < args.length; ++i) {
+            if(args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+        args = arguments.toArray(new String[arguments.size()]);
+        
+        if(!checkOptions(args, options)) {
+            printUsage();
+            System.exit(1);
+        }
+        
+        boolean archive = options.containsKey("archive");
+        if(args.length < 3 || (args.length != 3 && !args[0].equals("compile-all"))) {
             printUsage();
             System.exit(1);
         }
@@ -69,12 +115,37 @@ public class DPTStatAppCompiler {
             
             switch(args[0]) {
                 case "generate" :
-                    AppGenerator gen = new AppGenerator(filepath);
+                    AppGenerator gen = new AppGenerator(filepath, new Config());
                     System.exit(gen.generateApp() ? 0 : 1);
                     break;
                 case "compile" :
                     AppCompiler comp = new AppCompiler(filepath, shouldCompress(args[1]));
-                    System.exit(comp.compileApp() ? 0 : 1);
+                    comp.setMode(args[1]);
+                    comp.setHtmlProfile(options.get("html"));
+                    if(archive) {
+                        comp.setArchive(Paths.get(options.get("archive")).toAbsolutePath());
+                    }
+                    boolean compiled = comp.compileApp();
+                    MemoryHelpers.printPeakHeapUsage();
+                    System.exit(compiled ? 0 : 1);
+                    break;
+                case "compile-all" :
+                    List<String> filepaths = new ArrayList<>();
+                    for(int i = 2; i < args.length; ++i) {
+                        String path = checkAndFormatFilePath(args[i]);
+                        if(path == null) System.exit(1);
+                        filepaths.add(path);
+                    }
+                    BatchCompiler batch = new BatchCompiler(filepaths, shouldCompress(args[1]));
+                    batch.setMode(args[1]);
+                    batch.setHtmlProfile(options.get("html"));
+                    boolean compiledAll = batch.compileAll();
+                    MemoryHelpers.printPeakHeapUsage();
+                    System.exit(compiledAll ? 0 : 1);
+                    break;
+                case "diff" :
+                    SnapshotDiff diff = new SnapshotDiff(filepath, Paths.get(args[1]));
+                    System.exit(diff.printDiff() ? 0 : 1);
                     break;
                 case "clean" : 
                     System.out.println("Just delete the contents of the app folder for now.");
@@ -88,6 +159,38 @@ public class DPTStatAppCompiler {
         System.exit(0);
     }
     
+    /**
+     * Check the options given to a command. Only compile accepts '--archive',
+     * compile and compile-all accept '--html' with a profile name.
+     * @param args the arguments without the options.
+     * @param options the options by name. 
+     * @return true when the options are valid.
+     */
+    private static boolean checkOptions(String[] args, Map<String, String> options) {
+        for(Map.Entry<String, String> option : options.entrySet()) {
+            String command = args.length > 0 ? args[0] : "";
+            switch(option.getKey()) {
+                case "archive":
+                    if(!command.equals("compile")) {
+                        return false;
+                    }
+                    break;
+                case "html":
+                    if(!command.equals("compile") && !command.equals("compile-all")) {
+                        return false;
+                    }
+                    if(HtmlProfile.forName(option.getValue()) == null) {
+                        ErrorFormatter.writeStringError(ErrorType.FATAL, "Unknown HTML profile '" + option.getValue() + "', use dev, safe or aggressive.");
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Check and format a file path. This function checks if the file path
      * exists and ensures a slash is added to the end. null is returned when
@@ -125,7 +228,17 @@ public class DPTStatAppCompiler {
         System.out.println("Possible commands:");
         System.out.println("\t generate: generate the folder structure for a new project");
         System.out.println("");
-        System.out.println("\t compile: compile all project files to the static HTML app");
+        System.out.println("\t compile: compile all project files to the static HTML app, add '--archive <file.zip>' to compile to a ZIP archive instead");
+        System.out.println("\t          the mode is 'dev', 'prod' or 'preview', which is close to prod but uses the fast compressors");
+        System.out.println("\t          add '--html <profile>' to compress the pages with the 'dev', 'safe' or 'aggressive' profile");
+        System.out.println("");
+        System.out.println("\t compile-all: compile multiple projects concurrently, takes one or more project directories");
+        System.out.println("");
+        System.out.println("\t check: validate all statements of the project without compiling, takes only the project directory");
+        System.out.println("");
+        System.out.println("\t train: compile the project once and save the loaded classes to a class-data-sharing archive for faster start up, takes only the project directory");
+        System.out.println("");
+        System.out.println("\t diff: list the outputs added, changed or removed since an earlier snapshot, takes the snapshot file before the project directory");
         System.out.println("");
         System.out.println("\t clean: clean the complete app directory");
     }
@@ -34,12 +34,16 @@ package dpt.statapp.compiler.compilers;
 import dpt.statapp.compiler.config.Config;
 import dpt.statapp.compiler.helper.DirCopyVisitor;
 import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.LocaleHelpers;
+import dpt.statapp.compiler.helper.MemoryHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.helper.Snapshot;
 import dpt.statapp.compiler.iface.Compiler;
 import dpt.statapp.compiler.output.ErrorFormatter;
 import dpt.statapp.compiler.output.ErrorType;
 import dpt.statapp.compiler.output.OutFormatter;
 import dpt.statapp.compressor.Compressor;
-import dpt.statapp.compressor.JavascriptCompressor;
+import dpt.statapp.compressor.CompressorFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
@@ -58,6 +62,9 @@ public class AppCompiler {
     protected String filepath;
     protected Boolean shouldCompress;
     
+    /* The project configuration, loaded when compiling */
+    protected Config config;
+    
     /**
      * Construct a new AppCompiler instance. 
      * @param filepath the filepath to work in. 
@@ -69,64 +76,254 @@ public class AppCompiler {
         System.out.println(shouldCompress+ "compressing");
     }
     
+    /* The build mode given on the command line */
+    protected String mode = null;
+    
+    /**
+     * Set the build mode, which can override the project configuration.
+     * @param mode the build mode, for example 'preview'. 
+     */
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+    
+    /* The HTML profile given on the command line, null for the configured profile */
+    protected String htmlProfile = null;
+    
+    /**
+     * Override the HTML profile of the project. 
+     * @param htmlProfile the profile name, for example 'aggressive'.
+     */
+    public void setHtmlProfile(String htmlProfile) {
+        this.htmlProfile = htmlProfile;
+    }
+    
+    /* The archive to compile to, null to compile to the app directory */
+    protected Path archive = null;
+    
+    /* The destination of the compiled files */
+    protected OutputSink output;
+    
+    /**
+     * Compile to a ZIP archive instead of the app directory. 
+     * @param archive the archive to write. 
+     */
+    public void setArchive(Path archive) {
+        this.archive = archive;
+    }
+    
     /**
      * Compile the static HTML application. 
      * @return true on compilation success.
      */
     public boolean compileApp() {
+        MemoryHelpers.trackLiveHeap();
+        
+        /* Load the project configuration */
+        config = Config.load(filepath);
+        if(config == null) {
+            return false;
+        }
+        config.applyMode(mode);
+        if(htmlProfile != null) {
+            config.htmlProfile = htmlProfile;
+        }
+        
+        if(archive == null) {
+            /* Start from an empty app, files of an earlier compile would linger and never be updated */
+            if(!FileHelpers.clearDirectory(filepath + config.outputDirectory) || !createOutputDirectories()) {
+                return false;
+            }
+            output = new OutputSink(Paths.get(filepath + config.outputDirectory));
+            return compileStages() && writeSnapshot();
+        }
+        
+        /* The pages are rewritten by several stages, stage them in the cache instead of the app directory */
+        config.outputDirectory = config.cacheDirectory + "/staging";
+        FileHelpers.deleteDirectoryTree(filepath + config.outputDirectory);
+        if(!createOutputDirectories()) {
+            return false;
+        }
+        
+        /* The finished files are streamed straight into the archive */
+        try {
+            Path gzip = config.archivePrecompress ? Paths.get(filepath + config.cacheDirectory, "archive.gz.tmp") : null;
+            output = new OutputSink(Paths.get(filepath + config.outputDirectory), archive, gzip);
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not create the archive '" + archive + "':");
+            ex.printStackTrace(System.err);
+            FileHelpers.deleteDirectoryTree(filepath + config.outputDirectory);
+            return false;
+        }
         
+        boolean success = false;
+        try {
+            success = compileStages() && writeSnapshot() && new ArchiveCompiler(filepath, config, output, archive).run();
+        } finally {
+            try {
+                output.close();
+            } catch (IOException ex) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not write the archive '" + archive + "':");
+                ex.printStackTrace(System.err);
+                success = false;
+            }
+            FileHelpers.deleteDirectoryTree(filepath + config.outputDirectory);
+            
+            /* Never leave a half written archive behind */
+            if(!success) {
+                try {
+                    Files.deleteIfExists(archive);
+                } catch (IOException ex) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not delete the incomplete archive '%s'", archive.toString());
+                }
+            }
+        }
+        return success;
+    }
+    
+    /**
+     * Create the asset directories the stages write to. 
+     * @return true on success.
+     */
+    private boolean createOutputDirectories() {
+        try {
+            for(String dir : new String[] {config.imageDirectory, config.fontDirectory, config.localesDirectory, "assets/css", "assets/js"}) {
+                Files.createDirectories(Paths.get(filepath + config.outputDirectory, dir));
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not create the output directory:");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Write the snapshot of the compiled files when asked. 
+     * @return true on success.
+     */
+    private boolean writeSnapshot() {
+        if(!config.snapshot) {
+            return true;
+        }
+        
+        try {
+            Snapshot snapshot = Snapshot.create(output);
+            snapshot.save(Paths.get(filepath + config.snapshotFile));
+            OutFormatter.printfLn("Snapshot of %d files written to %s, root hash %s", snapshot.getFileCount(), config.snapshotFile, snapshot.getRootHash());
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not write the snapshot:");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Run all compiler stages. 
+     * @return true on compilation success.
+     */
+    private boolean compileStages() {
         /* Execute stage 1 of the compiler and parse partials */
-        Compiler htmlComp = new HtmlCompiler(filepath); 
+        Compiler htmlComp = new HtmlCompiler(filepath, config); 
         if(!htmlComp.run()) {
             return false;
         }
         
         /* Execute stage 2 of the compiler and parse styles */
-        Compiler styleComp = new StyleCompiler(filepath);
+        Compiler styleComp = new StyleCompiler(filepath, config, output);
         if(!styleComp.run()) {
             return false;
         }
         
         /* Execute stage 3 of the compiler and parse scripts */
-        Compiler scriptComp = new ScriptCompiler(filepath, shouldCompress);
+        ScriptCompiler scriptComp = new ScriptCompiler(filepath, config, shouldCompress, output);
         if(!scriptComp.run()) {
             return false;
         }
         
+        /* Combine the icons in a sprite */
+        if(config.svgSprite) {
+            Compiler svgSpriteComp = new SvgSpriteCompiler(filepath, config, output);
+            if(!svgSpriteComp.run()) {
+                return false;
+            }
+        }
+        
+        /* Add prefetch hints based on the links between the pages */
+        if(config.prefetchLinks) {
+            Compiler prefetchComp = new PrefetchCompiler(filepath, config, output);
+            if(!prefetchComp.run()) {
+                return false;
+            }
+        }
+        
+        /* Add downscaled image variants to the image tags */
+        if(config.responsiveImages) {
+            Compiler responsiveComp = new ResponsiveImageCompiler(filepath, config, output);
+            if(!responsiveComp.run()) {
+                return false;
+            }
+        }
+        
+        /* Add dimensions and lazy loading to the image tags */
+        if(config.lazyImages) {
+            Compiler lazyImageComp = new LazyImageCompiler(filepath, config);
+            if(!lazyImageComp.run()) {
+                return false;
+            }
+        }
+        
+        /* Check the page payloads against the budgets */
+        if(!config.budgets.isEmpty()) {
+            Compiler budgetComp = new BudgetCompiler(filepath, config, output);
+            if(!budgetComp.run()) {
+                return false;
+            }
+        }
+        
         /* Delete the temporary directory */
-        FileHelpers.deleteDirectoryAndContents(filepath + Config.OUTPUT_DIRECTORY + "/" + Config.TEMP_DIRECTORY);
+        FileHelpers.deleteDirectoryAndContents(filepath + config.outputDirectory + "/" + config.tempDirectory);
+        
+        /* Copy the images, optimized when asked */
+        if(config.optimizeImages) {
+            Compiler imageComp = new ImageCompiler(filepath, config, output);
+            if(!imageComp.run()) {
+                return false;
+            }
+        }
         
         /* Copy image and licence folders */
         try {
-            Path dir = FileHelpers.createDirectoryIfNotExists(filepath + Config.OUTPUT_DIRECTORY + "/" + Config.IMAGE_DIRECTORY);
-            Files.walkFileTree(Paths.get(filepath + Config.IMAGE_DIRECTORY), new DirCopyVisitor(dir));
+            Path dir = FileHelpers.createDirectoryIfNotExists(filepath + config.outputDirectory + "/" + config.imageDirectory);
+            Files.walkFileTree(Paths.get(filepath + config.imageDirectory), new DirCopyVisitor(output, dir));
             
-//            dir = FileHelpers.createDirectoryIfNotExists(filepath + Config.OUTPUT_DIRECTORY + "/" + Config.LICENCE_DIRECTORY);
+//            dir = FileHelpers.createDirectoryIfNotExists(filepath + config.outputDirectory + "/" + Config.LICENCE_DIRECTORY);
 //            Files.walkFileTree(Paths.get(filepath + Config.LICENCE_DIRECTORY), new DirCopyVisitor(dir));
 
             String licensePath = filepath + "/license";
-            String licenseDest = filepath + Config.OUTPUT_DIRECTORY + "/license";
+            String licenseDest = filepath + config.outputDirectory + "/license";
 
-            if (!Files.exists(Paths.get(licenseDest))) Files.copy(Paths.get(licensePath), Paths.get(licenseDest));
+            if (!output.exists(Paths.get(licenseDest))) output.copy(Paths.get(licensePath), Paths.get(licenseDest));
 
 
             
-            dir = FileHelpers.createDirectoryIfNotExists(filepath + Config.OUTPUT_DIRECTORY + "/" + Config.FONT_DIRECTORY);
-            Files.walkFileTree(Paths.get(filepath + Config.FONT_DIRECTORY), new DirCopyVisitor(dir));
+            dir = FileHelpers.createDirectoryIfNotExists(filepath + config.outputDirectory + "/" + config.fontDirectory);
+            Files.walkFileTree(Paths.get(filepath + config.fontDirectory), new DirCopyVisitor(output, dir));
             
             /* Copy and compress locales if they are not inluded in global JS */
-            if(!Config.LOCALES_AS_GLOBAL_JS) {
-                dir = FileHelpers.createDirectoryIfNotExists(filepath + Config.OUTPUT_DIRECTORY + "/" + Config.LOCALES_DIRECTORY);
+            if(!config.localesAsGlobalJs) {
+                dir = FileHelpers.createDirectoryIfNotExists(filepath + config.outputDirectory + "/" + config.localesDirectory);
 
-                Compressor compressor = new JavascriptCompressor();
+                Compressor compressor = CompressorFactory.createScriptCompressor(config);
 
-                try(DirectoryStream<Path> localeStream = Files.newDirectoryStream(Paths.get(filepath + Config.LOCALES_DIRECTORY))) {      
+                try(DirectoryStream<Path> localeStream = Files.newDirectoryStream(Paths.get(filepath + config.localesDirectory))) {      
                     /* Copy and compress all javascript locales */
                     for(Path locale :  localeStream) {
                         OutFormatter.printfLn("Compressing locale: %s", locale.getFileName().toString());
-                        String localeContents = FileHelpers.fileToString(locale);
-                        localeContents = compressor.compress(localeContents);
-                        Files.write(new File(dir.toFile(), locale.getFileName().toString()).toPath(), localeContents.getBytes());
+                        String localeContents = LocaleHelpers.shake(locale.getFileName().toString(), FileHelpers.fileToString(locale), scriptComp.getLocaleKeys());
+                        localeContents = compressor.compress(localeContents, locale.getFileName().toString());
+                        output.write(new File(dir.toFile(), locale.getFileName().toString()).toPath(), localeContents.getBytes());
                     }
                 } catch (Exception ex) {
                     ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not copy all locale files.");
@@ -134,7 +331,7 @@ public class AppCompiler {
                     return false;
                 }
                 
-                Files.walkFileTree(Paths.get(filepath + Config.LOCALES_DIRECTORY), new DirCopyVisitor(Paths.get(filepath + Config.OUTPUT_DIRECTORY + "/" + Config.LOCALES_DIRECTORY)));
+                Files.walkFileTree(Paths.get(filepath + config.localesDirectory), new DirCopyVisitor(output, Paths.get(filepath + config.outputDirectory + "/" + config.localesDirectory)));
             } else {
                 OutFormatter.printLn("Skipping separated locale compressing and copying as the locales are integrated in the global script file.");
             }
@@ -143,6 +340,21 @@ public class AppCompiler {
             ErrorFormatter.writeStringError(ErrorType.WARNING, "Could not copy static content directories to app:");
             ex.printStackTrace(System.err);
         }
+        
+        /* Generate the service worker when all output is final */
+        if(config.serviceWorker) {
+            Compiler workerComp = new ServiceWorkerCompiler(filepath, config, shouldCompress, output);
+            if(!workerComp.run()) {
+                return false;
+            }
+        }
+        
+        /* Fail when streaming mode did not stay below the memory ceiling */
+        long peakHeap = MemoryHelpers.getPeakHeapUsage();
+        if(config.streaming && config.streamingMaxHeap > 0 && peakHeap > config.streamingMaxHeap) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "The heap in use after garbage collection peaked at %d MB, above the streaming ceiling of %d MB", peakHeap, config.streamingMaxHeap);
+            return false;
+        }
          
         return true;
     }
@@ -0,0 +1,102 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ArchiveCompiler.java
+ * Created on October 19, 2026, 01:40 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class finishes the deployable ZIP archive. The stages stream the
+ * finished files, like bundles, images, fonts and locales, straight into
+ * the archive. The pages are staged because later stages rewrite them, 
+ * this stage adds them once every stage is done and closes the archive. 
+ * @author Daan Pape
+ */
+public class ArchiveCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* The archive the files are streamed to */
+    private OutputSink output;
+    
+    /* The archive file */
+    private Path archive;
+    
+    /**
+     * Construct a new ArchiveCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the archive the files are streamed to.
+     * @param archive the archive file.
+     */
+    public ArchiveCompiler(String filePath, Config config, OutputSink output, Path archive) {
+        this.filePath = filePath;
+        this.config = config;
+        this.output = output;
+        this.archive = archive;
+    }
+    
+    /**
+     * Run the archive compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        int files;
+        try {
+            OutFormatter.printfLn("Archiving %d staged files...", output.commitAll());
+            files = output.listFiles().size();
+            output.close();
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not write the archive '" + archive + "':");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        try {
+            OutFormatter.printfLn("Archived %d files in %d entries to %s (%d bytes)", files, output.getEntryCount(), archive.toString(), Files.size(archive));
+        } catch (IOException ex) {
+            OutFormatter.printfLn("Archived %d files in %d entries to %s", files, output.getEntryCount(), archive.toString());
+        }
+        return true;
+    }
+}
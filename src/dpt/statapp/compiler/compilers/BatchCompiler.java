@@ -0,0 +1,134 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   BatchCompiler.java
+ * Created on October 19, 2026, 01:52 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class compiles multiple applications concurrently in the same
+ * process. Every application has its own configuration, the worker
+ * threads and the compressor caches are shared.
+ * @author Daan Pape
+ */
+public class BatchCompiler {
+    /* The working directories of the applications */
+    protected List<String> filepaths;
+    protected Boolean shouldCompress;
+    protected String mode = null;
+    protected String htmlProfile = null;
+    
+    /**
+     * Construct a new BatchCompiler. 
+     * @param filepaths the file paths of the applications.
+     * @param shouldCompress true if the output should be compressed.
+     */
+    public BatchCompiler(List<String> filepaths, Boolean shouldCompress) {
+        this.filepaths = filepaths;
+        this.shouldCompress = shouldCompress;
+    }
+    
+    /**
+     * Set the build mode of all applications. 
+     * @param mode the build mode, for example 'preview'. 
+     */
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+    
+    /**
+     * Override the HTML profile of all applications. 
+     * @param htmlProfile the profile name, for example 'aggressive'.
+     */
+    public void setHtmlProfile(String htmlProfile) {
+        this.htmlProfile = htmlProfile;
+    }
+    
+    /**
+     * Compile all applications. 
+     * @return true when every application compiled successfully.
+     */
+    public boolean compileAll() {
+        int threads = Math.min(filepaths.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        OutFormatter.printfLn("Compiling %d applications on %d threads", filepaths.size(), threads);
+        
+        long start = System.nanoTime();
+        List<Future<Boolean>> results = new ArrayList<>();
+        final long[] durations = new long[filepaths.size()];
+        for(int i = 0; i < filepaths.size(); ++i) {
+            final int index = i;
+            results.add(pool.submit(() -> {
+                long projectStart = System.nanoTime();
+                AppCompiler compiler = new AppCompiler(filepaths.get(index), shouldCompress);
+                compiler.setMode(mode);
+                compiler.setHtmlProfile(htmlProfile);
+                boolean success = compiler.compileApp();
+                durations[index] = (System.nanoTime() - projectStart) / 1000000;
+                return success;
+            }));
+        }
+        
+        /* Wait for all applications and print the summary */
+        boolean success = true;
+        List<String> summary = new ArrayList<>();
+        for(int i = 0; i < filepaths.size(); ++i) {
+            boolean projectSuccess;
+            try {
+                projectSuccess = results.get(i).get();
+            } catch (InterruptedException | ExecutionException ex) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "Compilation of '" + filepaths.get(i) + "' crashed:");
+                ex.printStackTrace(System.err);
+                projectSuccess = false;
+            }
+            
+            success &= projectSuccess;
+            summary.add(String.format("%-6s %6d ms  %s", projectSuccess ? "OK" : "FAILED", durations[i], filepaths.get(i)));
+        }
+        pool.shutdown();
+        
+        OutFormatter.printLn("");
+        for(String line : summary) {
+            OutFormatter.printLn(line);
+        }
+        OutFormatter.printfLn("Compiled %d applications in %d ms", filepaths.size(), (System.nanoTime() - start) / 1000000);
+        
+        return success;
+    }
+}
@@ -0,0 +1,225 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   BudgetCompiler.java
+ * Created on October 19, 2026, 12:25 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.config.PageBudget;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class computes the payload of every compiled page from the scripts
+ * and styles it includes and checks it against the configured budgets. The
+ * compilation fails when a page exceeds a budget. 
+ * @author Daan Pape
+ */
+public class BudgetCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* Caches the raw and gzipped size of every output file */
+    private Map<Path, long[]> sizeCache = new HashMap<>();
+    
+    /* The compiled files, used to measure the pages and their assets */
+    private OutputSink output;
+    
+    /**
+     * Construct a new BudgetCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the compiled files, used to measure them.
+     */
+    public BudgetCompiler(String filePath, Config config, OutputSink output) {
+        this.filePath = filePath;
+        this.config = config;
+        this.output = output;
+    }
+    
+    /**
+     * Get the raw and gzipped size of an output file.
+     * @param file the file to measure.
+     * @return an array with the raw and the gzipped size.
+     * @throws IOException when the file could not be read.
+     */
+    private long[] getSizes(Path file) throws IOException
+    {
+        long[] sizes = sizeCache.get(file);
+        if(sizes == null) {
+            sizes = new long[] {output.getSize(file), output.getGzipSize(file)};
+            sizeCache.put(file, sizes);
+        }
+        return sizes;
+    }
+    
+    /**
+     * Check a page against all budgets it matches. 
+     * @param page the compiled page. 
+     * @param outputdir the output directory of the app.
+     * @return the list of exceeded limits, empty when the page is within budget.
+     * @throws IOException when a file could not be read. 
+     */
+    private List<String> checkPage(Path page, Path outputdir) throws IOException
+    {
+        String content = FileHelpers.fileToString(page);
+        if(content == null) {
+            throw new IOException("Could not read " + page);
+        }
+        
+        /* The page itself followed by every script and style it includes */
+        Set<Path> files = new LinkedHashSet<>();
+        files.add(page);
+        for(String ref : HtmlHelpers.getAssetReferences(content)) {
+            Path asset = HtmlHelpers.resolveReference(outputdir, page, ref);
+            if(asset != null && output.exists(asset)) {
+                files.add(asset);
+            }
+        }
+        
+        long totalBytes = 0;
+        long totalGzipBytes = 0;
+        long largestBundle = 0;
+        String largestBundleName = null;
+        for(Path file : files) {
+            long[] sizes = getSizes(file);
+            totalBytes += sizes[0];
+            totalGzipBytes += sizes[1];
+            if(!file.equals(page) && sizes[0] > largestBundle) {
+                largestBundle = sizes[0];
+                largestBundleName = outputdir.relativize(file).toString();
+            }
+        }
+        
+        List<String> exceeded = new ArrayList<>();
+        for(PageBudget budget : config.budgets) {
+            if(!budget.matches(page)) {
+                continue;
+            }
+            
+            if(budget.getMaxRequests() >= 0 && files.size() > budget.getMaxRequests()) {
+                exceeded.add(String.format("budget '%s': %d requests exceeds the maximum of %d", budget.getName(), files.size(), budget.getMaxRequests()));
+            }
+            if(budget.getMaxBytes() >= 0 && totalBytes > budget.getMaxBytes()) {
+                exceeded.add(String.format("budget '%s': %d bytes exceeds the maximum of %d", budget.getName(), totalBytes, budget.getMaxBytes()));
+            }
+            if(budget.getMaxGzipBytes() >= 0 && totalGzipBytes > budget.getMaxGzipBytes()) {
+                exceeded.add(String.format("budget '%s': %d gzipped bytes exceeds the maximum of %d", budget.getName(), totalGzipBytes, budget.getMaxGzipBytes()));
+            }
+            if(budget.getMaxBundleBytes() >= 0 && largestBundle > budget.getMaxBundleBytes()) {
+                exceeded.add(String.format("budget '%s': bundle '%s' of %d bytes exceeds the maximum of %d", budget.getName(), largestBundleName, largestBundle, budget.getMaxBundleBytes()));
+            }
+        }
+        
+        if(!exceeded.isEmpty()) {
+            printBreakdown(page, outputdir, files, totalBytes, totalGzipBytes);
+        } else {
+            OutFormatter.printfLn("Page %s is within budget: %d requests, %d bytes, %d bytes gzipped", page.getFileName().toString(), files.size(), totalBytes, totalGzipBytes);
+        }
+        
+        return exceeded;
+    }
+    
+    /**
+     * Print the payload of a page per file. 
+     * @param page the compiled page.
+     * @param outputdir the output directory of the app.
+     * @param files the page and all files it includes.
+     * @param totalBytes the total raw size.
+     * @param totalGzipBytes the total gzipped size.
+     * @throws IOException when a file could not be read. 
+     */
+    private void printBreakdown(Path page, Path outputdir, Set<Path> files, long totalBytes, long totalGzipBytes) throws IOException
+    {
+        ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "Page %s exceeds its payload budget:", page.getFileName().toString());
+        for(Path file : files) {
+            long[] sizes = getSizes(file);
+            System.err.printf("\t%10d %10d  %s%n", sizes[0], sizes[1], outputdir.relativize(file).toString());
+        }
+        System.err.printf("\t%10d %10d  total of %d requests (raw, gzipped)%n", totalBytes, totalGzipBytes, files.size());
+    }
+    
+    /**
+     * Run the budget compiler stage. 
+     * @return true when every page is within its budgets, false else. 
+     */
+    @Override
+    public boolean run() {
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
+        if(outputdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Budget checks could not complete because the output directory is not present.");
+            return false;
+        }
+        
+        List<Path> pages = HtmlHelpers.listPages(outputdir);
+        if(pages == null) {
+            return false;
+        }
+        
+        boolean withinBudget = true;
+        try {
+            for(Path page : pages) {
+                List<String> exceeded = checkPage(page, outputdir);
+                for(String limit : exceeded) {
+                    System.err.println("\t" + limit);
+                }
+                withinBudget &= exceeded.isEmpty();
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not compute the page payloads:");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        if(!withinBudget) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "One or more pages exceed their payload budget");
+            return false;
+        }
+        
+        OutFormatter.printLn("All pages are within their payload budgets");
+        return true;
+    }
+}
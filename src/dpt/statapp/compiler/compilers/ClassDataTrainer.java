@@ -0,0 +1,160 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ClassDataTrainer.java
+ * Created on October 19, 2026, 04:10 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.DPTStatAppCompiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class creates a class-data-sharing archive for the compiler. A 
+ * production compile of the given project runs in a child JVM which dumps 
+ * every class it loaded to the archive when it exits. The launcher scripts 
+ * next to the JAR file map this archive on start up, so the classes of the 
+ * compiler and the compressor libraries no longer have to be loaded and 
+ * verified again on every run. 
+ * @author Daan Pape
+ */
+public class ClassDataTrainer {
+    /* The first Java version able to dump a dynamic archive at exit */
+    private static final int MIN_JAVA_VERSION = 13;
+    
+    /* The project directory to train on */
+    private String filepath;
+    
+    /**
+     * Construct a new ClassDataTrainer.
+     * @param filepath the project directory to compile while training.
+     */
+    public ClassDataTrainer(String filepath) {
+        this.filepath = filepath;
+    }
+    
+    /**
+     * Get the major version of the running Java platform. 
+     * @return the major version, 8 for Java 1.8.
+     */
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        if(version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        return Integer.parseInt(version);
+    }
+    
+    /**
+     * Get the JAR file the compiler is running from. 
+     * @return the JAR file or null when the compiler does not run from a JAR.
+     */
+    private static Path compilerJar() {
+        try {
+            Path location = Paths.get(DPTStatAppCompiler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if(Files.isRegularFile(location) && location.getFileName().toString().endsWith(".jar")) {
+                return location;
+            }
+        } catch (URISyntaxException | SecurityException ex) {
+            /* Treated as not running from a JAR */
+        }
+        return null;
+    }
+    
+    /**
+     * Run a representative compile and write the archive next to the JAR
+     * file, with the name of the JAR and the 'jsa' extension. 
+     * @return true on success.
+     */
+    public boolean train() {
+        if(javaVersion() < MIN_JAVA_VERSION) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Training needs Java " + MIN_JAVA_VERSION + " or higher, this is Java " + javaVersion() + ".");
+            return false;
+        }
+        
+        /* Class-data-sharing only archives classes loaded from JAR files */
+        Path jar = compilerJar();
+        if(jar == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Training only works when the compiler runs from its JAR file, use the launcher in the dist directory.");
+            return false;
+        }
+        
+        String jarName = jar.getFileName().toString();
+        Path archive = jar.resolveSibling(jarName.substring(0, jarName.length() - 4) + ".jsa");
+        
+        /* The class path must be exactly the one the launcher uses later */
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:ArchiveClassesAtExit=" + archive.toString());
+        command.add("-Xlog:cds=error");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DPTStatAppCompiler.class.getName());
+        command.add("compile");
+        command.add("prod");
+        command.add(filepath);
+        
+        try {
+            Files.deleteIfExists(archive);
+            
+            OutFormatter.printLn("Training on a production compile of " + filepath);
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            int status = process.waitFor();
+            
+            if(status != 0) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "The training compile failed with exit code " + status + ".");
+                return false;
+            }
+            if(!Files.isRegularFile(archive)) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "The JVM did not write the archive '" + archive.toString() + "'.");
+                return false;
+            }
+            
+            OutFormatter.printfLn("Wrote class-data-sharing archive %s (%d KiB)", archive.toString(), Files.size(archive) / 1024);
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not run the training compile:");
+            ex.printStackTrace(System.err);
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "The training compile was interrupted.");
+            return false;
+        }
+        
+        return true;
+    }
+}
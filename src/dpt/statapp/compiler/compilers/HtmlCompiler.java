@@ -43,6 +43,7 @@ import dpt.statapp.compiler.statement.StatementParser;
 import dpt.statapp.compiler.statement.StatementType;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -59,12 +60,17 @@ public class HtmlCompiler implements Compiler {
     /* The file path of the app */ 
     String filePath;
     
+    /* The project configuration */
+    Config config;
+    
     /**
      * Construct a new HtmlCompiler
      * @param filePath the file path of the application
+     * @param config the project configuration.
      */
-    public HtmlCompiler(String filePath) {
+    public HtmlCompiler(String filePath, Config config) {
         this.filePath = filePath;
+        this.config = config;
     }
     
     /**
@@ -77,9 +83,6 @@ public class HtmlCompiler implements Compiler {
      */
     private boolean handleHtmlFile(Path source, Path outdir, List<Path> partials)
     {
-        /* Buffer to hold the new String in */
-        StringBuilder result = new StringBuilder();
-        
         String sourceContent = FileHelpers.fileToString(source);
         if(sourceContent == null) {
             return false;
@@ -89,51 +92,47 @@ public class HtmlCompiler implements Compiler {
         int eof = sourceContent.length();
         int matchIndex = sourceContent.indexOf("<-");
         
-        while(matchIndex != -1) {
-            
-            /* Find closing tag index */
-            int closing_tag = sourceContent.indexOf("->", matchIndex);
-            if(closing_tag == -1) {
-                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "[SYNTAX] Could not find matching closing tag at %s", sourceContent.substring(matchIndex));
-                return false;
-            }
-            
-            try {
-                String stmtString = sourceContent.substring(matchIndex + 2, closing_tag - 1).trim();
-                Statement stmt = StatementParser.parseStatement(stmtString);
-                
-                /* Handle the partial statements */
-                if(stmt.getType().equals(StatementType.PARTIAL)) {
-                    /* Try to find the partial file in the list */
-                    Path partial = FileHelpers.getPathByFilename(stmt.getArgs()[0], partials);
-                    if(partial == null) {
-                        ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not find partial '" + stmt.getArgs()[0] + "'");
-                        return false;
+        /* Stream the result to the output directory */
+        try(Writer result = FileHelpers.openWriter(new File(outdir.toFile(), source.getFileName().toString()).toPath(), config.streamingBufferSize)) {
+            while(matchIndex != -1) {
+
+                /* Find closing tag index */
+                int closing_tag = sourceContent.indexOf("->", matchIndex);
+                if(closing_tag == -1) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "[SYNTAX] Could not find matching closing tag at %s", sourceContent.substring(matchIndex));
+                    return false;
+                }
+
+                try {
+                    Statement stmt = StatementParser.parseStatement(sourceContent, matchIndex + 2, closing_tag - 1);
+
+                    /* Handle the partial statements */
+                    if(stmt.getType().equals(StatementType.PARTIAL)) {
+                        /* Try to find the partial file in the list */
+                        Path partial = FileHelpers.getPathByFilename(stmt.getArg(0), partials);
+                        if(partial == null) {
+                            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not find partial '" + stmt.getArg(0) + "'");
+                            return false;
+                        }
+
+                        /* Now replace the statement with the partial's content */
+                        result.write(sourceContent, cursor, matchIndex - 1 - cursor);
+                        FileHelpers.appendFile(partial, result, config.streamingBufferSize);
+                        cursor = closing_tag + 2;
                     }
-                    
-                    /* Now replace the statement with the partial's content */
-                    String partialContent = FileHelpers.fileToString(partial);
-                    result.append(sourceContent.substring(cursor, matchIndex - 1));
-                    result.append(partialContent);
-                    cursor = closing_tag + 2;
+                } catch(StatementParseException ex) {
+                    ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not parse HTML file: " + ex.getMessage());
+                    return false;
+                }
+
+                /* Search the next tag */
+                matchIndex = sourceContent.indexOf("<-", closing_tag);
+
+                /* Write rest of file if no match was found */
+                if(matchIndex == -1) {
+                    result.write(sourceContent, cursor, eof - cursor);
                 }
-            } catch(StatementParseException ex) {
-                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not parse HTML file: " + ex.getMessage());
-                return false;
-            }
-            
-            /* Search the next tag */
-            matchIndex = sourceContent.indexOf("<-", closing_tag);
-            
-            /* Write rest of file if no match was found */
-            if(matchIndex == -1) {
-                result.append(sourceContent.substring(cursor, eof));
             }
-        }
-        
-        /* Now save the file in the output directory */
-        try {
-            Files.write(new File(outdir.toFile(), source.getFileName().toString()).toPath(), result.toString().getBytes());
         } catch (IOException ex) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save result of HTML parse to output folder:");
             ex.printStackTrace(System.err);
@@ -150,25 +149,25 @@ public class HtmlCompiler implements Compiler {
     @Override
     public boolean run() {
         /* Open all relevant directories */
-        Path htmldir = FileHelpers.openDirectory(filePath + Config.PAGES_DIRECTORY);
-        Path partialdir = FileHelpers.openDirectory(filePath + Config.PARTIAL_DIRECTORY);
+        Path htmldir = FileHelpers.openDirectory(filePath + config.pagesDirectory);
+        Path partialdir = FileHelpers.openDirectory(filePath + config.partialDirectory);
         if(htmldir == null || partialdir == null) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "HTML compilation could not complete because not all directories are present.");
             return false;
         }
         
         /* Create a temporary directory to store the HTML files in */
-        Path outputdir = FileHelpers.openDirectory(filePath + Config.OUTPUT_DIRECTORY + "/" + Config.TEMP_DIRECTORY);
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory + "/" + config.tempDirectory);
         if(outputdir == null) {
             OutFormatter.printf("Creating temp directory ...");
-            if(!new File(filePath + Config.OUTPUT_DIRECTORY + "/" + Config.TEMP_DIRECTORY).mkdir()) {
+            if(!new File(filePath + config.outputDirectory + "/" + config.tempDirectory).mkdir()) {
                 OutFormatter.printLn("ERR");
                 ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "Could not create the temporary working directory");
                 return false;
             };
             OutFormatter.printLn("OK");
             
-            outputdir = FileHelpers.openDirectory(filePath + Config.OUTPUT_DIRECTORY + "/" + Config.TEMP_DIRECTORY);
+            outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory + "/" + config.tempDirectory);
         }
         
         
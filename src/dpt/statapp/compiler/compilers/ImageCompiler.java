@@ -0,0 +1,180 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ImageCompiler.java
+ * Created on October 19, 2026, 10:40 AM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.ImageHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class copies the images to the app and recompresses them on the way.
+ * PNG images are recompressed losslessly, JPEG images are re-encoded at the
+ * configured quality when this saves enough. The original is kept whenever
+ * it is smaller. Results are cached by content hash and the images are 
+ * processed in parallel. 
+ * @author Daan Pape
+ */
+public class ImageCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* The total size of the images before and after optimizing */
+    private AtomicLong originalBytes = new AtomicLong();
+    private AtomicLong optimizedBytes = new AtomicLong();
+    
+    /* The destination of the optimized images */
+    private OutputSink output;
+    
+    /**
+     * Construct a new ImageCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the destination of the optimized images.
+     */
+    public ImageCompiler(String filePath, Config config, OutputSink output) {
+        this.filePath = filePath;
+        this.config = config;
+        this.output = output;
+    }
+    
+    /**
+     * Optimize a single image and write it to the app. 
+     * @param source the source image.
+     * @param target the target file in the app.
+     * @return true on success.
+     */
+    private boolean handleImage(Path source, Path target) {
+        try {
+            byte[] original = Files.readAllBytes(source);
+            byte[] result = original;
+            
+            String variant = null;
+            if(ImageHelpers.isPng(original)) {
+                variant = "png";
+            } else if(ImageHelpers.isJpeg(original)) {
+                variant = "jpeg-q" + config.jpegQuality + "-s" + config.jpegMinSaving;
+            }
+            
+            if(variant != null) {
+                Path cached = Paths.get(filePath + config.cacheDirectory, "images", FileHelpers.contentHash(original) + "-" + variant);
+                if(Files.exists(cached)) {
+                    result = Files.readAllBytes(cached);
+                } else {
+                    result = optimize(original, variant.equals("png"));
+                    Files.createDirectories(cached.getParent());
+                    Files.write(cached, result);
+                }
+                
+                if(result.length < original.length) {
+                    OutFormatter.printfLn("Optimized image '%s': %d to %d bytes", source.getFileName().toString(), original.length, result.length);
+                }
+            }
+            
+            originalBytes.addAndGet(original.length);
+            optimizedBytes.addAndGet(result.length);
+            output.write(target, result);
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not optimize image '" + source + "':");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Optimize an image, the original is returned when it is the smallest. 
+     * @param original the original image. 
+     * @param png true for a PNG image, false for a JPEG image.
+     * @return the optimized image. 
+     */
+    private byte[] optimize(byte[] original, boolean png) {
+        if(png) {
+            byte[] optimized = ImageHelpers.optimizePng(original);
+            return optimized != null && optimized.length < original.length ? optimized : original;
+        }
+        
+        /* A lossy re-encode must be worth the quality loss */
+        byte[] optimized = ImageHelpers.recompressJpeg(original, config.jpegQuality);
+        if(optimized != null && optimized.length < original.length * (100 - config.jpegMinSaving) / 100) {
+            return optimized;
+        }
+        return original;
+    }
+    
+    /**
+     * Run the image compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        Path imagedir = Paths.get(filePath + config.imageDirectory);
+        Path outdir = FileHelpers.createDirectoryIfNotExists(filePath + config.outputDirectory + "/" + config.imageDirectory);
+        if(!Files.isDirectory(imagedir) || outdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Image optimizing could not complete because not all directories are present.");
+            return false;
+        }
+        
+        List<Path> images;
+        try(Stream<Path> walk = Files.walk(imagedir)) {
+            images = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not list all images: ");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        /* Decoding and deflating is CPU bound, use every core */
+        OutFormatter.printfLn("Optimizing %d images...", images.size());
+        long failed = images.parallelStream()
+                .filter(image -> !handleImage(image, outdir.resolve(imagedir.relativize(image).toString())))
+                .count();
+        
+        OutFormatter.printfLn("Images optimized: %d to %d bytes", originalBytes.get(), optimizedBytes.get());
+        return failed == 0;
+    }
+}
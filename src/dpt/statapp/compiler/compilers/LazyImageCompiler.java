@@ -0,0 +1,208 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   LazyImageCompiler.java
+ * Created on October 19, 2026, 01:05 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.ImageDimensionCache;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * This class rewrites the image tags in the compiled pages. Every image
+ * gets its intrinsic width and height so the browser can reserve space 
+ * for it, images below the fold are loaded lazily and decoded async. 
+ * @author Daan Pape
+ */
+public class LazyImageCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* The image dimension cache */
+    private ImageDimensionCache dimensionCache;
+    
+    /* The image file names which should always load eagerly */
+    private List<PathMatcher> excludes = new ArrayList<>();
+    
+    /**
+     * Construct a new LazyImageCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     */
+    public LazyImageCompiler(String filePath, Config config) {
+        this.filePath = filePath;
+        this.config = config;
+        this.dimensionCache = new ImageDimensionCache(Paths.get(filePath + config.cacheDirectory, "image-dimensions.properties"));
+        
+        for(String exclude : config.lazyImagesExclude) {
+            excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + exclude));
+        }
+    }
+    
+    /**
+     * Check if an image is excluded from lazy loading. 
+     * @param image the image file. 
+     * @return true if the image should load eagerly.
+     */
+    private boolean isExcluded(Path image) {
+        for(PathMatcher exclude : excludes) {
+            if(exclude.matches(image.getFileName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Rewrite all image tags in a page. The first images of a page are 
+     * considered above the fold and keep loading eagerly. 
+     * @param page the compiled page. 
+     * @param outputdir the output directory of the app.
+     * @return true on success, false on error.
+     */
+    private boolean handlePage(Path page, Path outputdir)
+    {
+        String content = FileHelpers.fileToString(page);
+        if(content == null) {
+            return false;
+        }
+        
+        StringBuilder result = new StringBuilder();
+        Matcher m = HtmlHelpers.findTags(content, "img");
+        int cursor = 0;
+        int imageIndex = 0;
+        int lazyImages = 0;
+        
+        while(m.find()) {
+            String tag = m.group();
+            String src = HtmlHelpers.getAttribute(tag, "src");
+            Path image = src == null ? null : HtmlHelpers.resolveReference(outputdir, page, src);
+            imageIndex++;
+            
+            if(image == null) {
+                continue;
+            }
+            
+            /* Read the dimensions from the source image */
+            Path source = Paths.get(filePath).resolve(outputdir.relativize(image));
+            if(!Files.isRegularFile(source)) {
+                source = image;
+            }
+            
+            StringBuilder attributes = new StringBuilder();
+            if(Files.isRegularFile(source) && !HtmlHelpers.hasAttribute(tag, "width") && !HtmlHelpers.hasAttribute(tag, "height")) {
+                try {
+                    int[] dimensions = dimensionCache.getDimensions(source);
+                    if(dimensions != null) {
+                        attributes.append("width=\"").append(dimensions[0]).append("\" height=\"").append(dimensions[1]).append("\"");
+                    }
+                } catch (IOException ex) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not read the dimensions of image '%s'", src);
+                }
+            }
+            
+            /* Images below the fold load lazily unless excluded */
+            boolean belowFold = imageIndex > config.lazyImagesEagerCount;
+            if(belowFold && !isExcluded(image) && !HtmlHelpers.hasAttribute(tag, "loading")) {
+                if(attributes.length() > 0) {
+                    attributes.append(" ");
+                }
+                attributes.append("loading=\"lazy\"");
+                if(!HtmlHelpers.hasAttribute(tag, "decoding")) {
+                    attributes.append(" decoding=\"async\"");
+                }
+                lazyImages++;
+            }
+            
+            if(attributes.length() > 0) {
+                result.append(content, cursor, m.start());
+                result.append(HtmlHelpers.addAttributes(tag, attributes.toString()));
+                cursor = m.end();
+            }
+        }
+        result.append(content.substring(cursor));
+        
+        try {
+            Files.write(page, result.toString().getBytes());
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save the image tags of " + page.getFileName().toString());
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        OutFormatter.printfLn("Page %s has %d images of which %d load lazily", page.getFileName().toString(), imageIndex, lazyImages);
+        return true;
+    }
+    
+    /**
+     * Run the lazy image compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
+        if(outputdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Image tag rewriting could not complete because the output directory is not present.");
+            return false;
+        }
+        
+        List<Path> pages = HtmlHelpers.listPages(outputdir);
+        if(pages == null) {
+            return false;
+        }
+        
+        for(Path page : pages) {
+            if(!handlePage(page, outputdir)) {
+                return false;
+            }
+        }
+        dimensionCache.save();
+        
+        OutFormatter.printLn("All image tags are rewritten");
+        return true;
+    }
+}
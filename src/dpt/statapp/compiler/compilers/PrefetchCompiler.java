@@ -0,0 +1,249 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   PrefetchCompiler.java
+ * Created on October 19, 2026, 11:20 AM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class builds the internal link graph of the compiled pages and
+ * adds prefetch hints for the pages a visitor most likely opens next,
+ * together with the scripts and styles those pages need that the current
+ * page does not include. This stage runs on the compiled app. 
+ * @author Daan Pape
+ */
+public class PrefetchCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* Maps every page to the number of links to each other page, in document order */
+    Map<Path, Map<Path, Integer>> linkGraph = new HashMap<>();
+    
+    /* Maps every page to the number of pages linking to it */
+    Map<Path, Integer> inDegree = new HashMap<>();
+    
+    /* Maps every page to the scripts and styles it includes */
+    Map<Path, Set<Path>> pageAssets = new HashMap<>();
+    
+    /* The compiled files, used to measure the prefetched files */
+    private OutputSink output;
+    
+    /**
+     * Construct a new PrefetchCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the compiled files, used to measure them.
+     */
+    public PrefetchCompiler(String filePath, Config config, OutputSink output) {
+        this.filePath = filePath;
+        this.config = config;
+        this.output = output;
+    }
+    
+    /**
+     * Add the outgoing links and the assets of a page to the graph. 
+     * @param page the compiled page. 
+     * @param outputdir the output directory of the app. 
+     * @param pages all compiled pages. 
+     * @return true on success, false on error. 
+     */
+    private boolean analysePage(Path page, Path outputdir, List<Path> pages)
+    {
+        String content = FileHelpers.fileToString(page);
+        if(content == null) {
+            return false;
+        }
+        
+        /* Count the links to every other page */
+        Map<Path, Integer> links = new LinkedHashMap<>();
+        for(String href : HtmlHelpers.getTagAttributes(content, "a", "href")) {
+            Path target = HtmlHelpers.resolveReference(outputdir, page, href);
+            if(target == null || target.equals(page) || !pages.contains(target)) {
+                continue;
+            }
+            
+            Integer count = links.get(target);
+            if(count == null) {
+                links.put(target, 1);
+                inDegree.put(target, inDegree.getOrDefault(target, 0) + 1);
+            } else {
+                links.put(target, count + 1);
+            }
+        }
+        linkGraph.put(page, links);
+        
+        /* Remember the assets this page includes */
+        Set<Path> assets = new LinkedHashSet<>();
+        for(String ref : HtmlHelpers.getAssetReferences(content)) {
+            Path asset = HtmlHelpers.resolveReference(outputdir, page, ref);
+            if(asset != null && output.exists(asset)) {
+                assets.add(asset);
+            }
+        }
+        pageAssets.put(page, assets);
+        
+        return true;
+    }
+    
+    /**
+     * Select the files to prefetch for a page. The linked pages are ranked on
+     * the number of links to them from this page, then on the number of pages
+     * linking to them. A page is only prefetched when it fits the byte budget 
+     * together with the assets it needs which are not yet loaded. 
+     * @param page the page to select the prefetch files for. 
+     * @return the files to prefetch. 
+     * @throws IOException when a file size could not be read.
+     */
+    private List<Path> selectPrefetchFiles(Path page) throws IOException
+    {
+        List<Path> candidates = new ArrayList<>(linkGraph.get(page).keySet());
+        Map<Path, Integer> links = linkGraph.get(page);
+        candidates.sort((a, b) -> {
+            int cmp = Integer.compare(links.get(b), links.get(a));
+            if(cmp == 0) {
+                cmp = Integer.compare(inDegree.get(b), inDegree.get(a));
+            }
+            return cmp;
+        });
+        
+        List<Path> selected = new ArrayList<>();
+        Set<Path> loaded = new LinkedHashSet<>(pageAssets.get(page));
+        long budget = config.prefetchByteBudget;
+        int fanOut = 0;
+        
+        for(Path candidate : candidates) {
+            if(fanOut >= config.prefetchMaxPages) {
+                break;
+            }
+            
+            /* The page itself and the assets which are not loaded yet */
+            List<Path> files = new ArrayList<>();
+            files.add(candidate);
+            for(Path asset : pageAssets.get(candidate)) {
+                if(!loaded.contains(asset)) {
+                    files.add(asset);
+                }
+            }
+            
+            long size = 0;
+            for(Path file : files) {
+                size += output.getSize(file);
+            }
+            
+            if(size > budget) {
+                OutFormatter.printfLn("Skipping prefetch of '%s' (%d bytes) as it exceeds the remaining budget", candidate.getFileName().toString(), size);
+                continue;
+            }
+            
+            budget -= size;
+            loaded.addAll(files);
+            selected.addAll(files);
+            fanOut++;
+        }
+        
+        return selected;
+    }
+    
+    /**
+     * Run the prefetch compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
+        if(outputdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Prefetch analysis could not complete because the output directory is not present.");
+            return false;
+        }
+        
+        List<Path> pages = HtmlHelpers.listPages(outputdir);
+        if(pages == null) {
+            return false;
+        }
+        
+        /* Build the link graph */
+        OutFormatter.printLn("Building internal link graph...");
+        for(Path page : pages) {
+            if(!analysePage(page, outputdir, pages)) {
+                return false;
+            }
+        }
+        
+        /* Add the prefetch hints to every page */
+        try {
+            for(Path page : pages) {
+                List<Path> files = selectPrefetchFiles(page);
+                if(files.isEmpty()) {
+                    continue;
+                }
+                
+                StringBuilder hints = new StringBuilder();
+                for(Path file : files) {
+                    OutFormatter.printfLn("Prefetching '%s' from '%s'", outputdir.relativize(file).toString(), page.getFileName().toString());
+                    hints.append("<link rel=\"prefetch\" href=\"").append(HtmlHelpers.toReference(config, outputdir, file)).append("\">");
+                }
+                
+                String content = FileHelpers.fileToString(page);
+                if(content == null) {
+                    return false;
+                }
+                Files.write(page, HtmlHelpers.insertInHead(content, hints.toString()).getBytes());
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not add prefetch hints to the HTML pages:");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        OutFormatter.printLn("All prefetch hints are added");
+        return true;
+    }
+}
@@ -0,0 +1,299 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ResponsiveImageCompiler.java
+ * Created on October 19, 2026, 11:20 AM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.ImageDimensionCache;
+import dpt.statapp.compiler.helper.ImageHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import javax.imageio.ImageIO;
+
+/**
+ * This class generates downscaled variants of the images used in the 
+ * compiled pages and lets the browser pick one with srcset and sizes.
+ * Variants are generated in parallel and cached by the content hash of
+ * the source image. 
+ * @author Daan Pape
+ */
+public class ResponsiveImageCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* The image dimension cache */
+    private ImageDimensionCache dimensionCache;
+    
+    /* Maps every variant in the app to its source image, the key is the variant file */
+    private Map<Path, Path> variantSources = new LinkedHashMap<>();
+    private Map<Path, Integer> variantWidths = new LinkedHashMap<>();
+    
+    /* The variants which are smaller than their source image */
+    private Set<Path> usableVariants = ConcurrentHashMap.newKeySet();
+    
+    /* The destination of the image variants */
+    private OutputSink output;
+    
+    /**
+     * Construct a new ResponsiveImageCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the destination of the image variants.
+     */
+    public ResponsiveImageCompiler(String filePath, Config config, OutputSink output) {
+        this.filePath = filePath;
+        this.config = config;
+        this.output = output;
+        this.dimensionCache = new ImageDimensionCache(Paths.get(filePath + config.cacheDirectory, "image-dimensions.properties"));
+    }
+    
+    /**
+     * Get the name of an image variant, 'hero.jpg' becomes 'hero-480w.jpg'.
+     * @param name the image name or reference.
+     * @param width the variant width.
+     * @return the variant name.
+     */
+    private static String variantName(String name, int width) {
+        int dot = name.lastIndexOf('.');
+        return name.substring(0, dot) + "-" + width + "w" + name.substring(dot);
+    }
+    
+    /**
+     * Check if an image can be scaled.
+     * @param name the image name.
+     * @return true for PNG and JPEG images.
+     */
+    private static boolean isScalable(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg");
+    }
+    
+    /**
+     * Add srcset and sizes to all image tags in a page. This is done in 
+     * two rounds, the first round only registers the variants the page 
+     * needs, the second round adds the variants which were worth it.
+     * @param page the compiled page. 
+     * @param outputdir the output directory of the app.
+     * @param rewrite false for the first round, true for the second round.
+     * @return true on success, false on error.
+     */
+    private boolean handlePage(Path page, Path outputdir, boolean rewrite)
+    {
+        String content = FileHelpers.fileToString(page);
+        if(content == null) {
+            return false;
+        }
+        
+        StringBuilder result = new StringBuilder();
+        Matcher m = HtmlHelpers.findTags(content, "img");
+        int cursor = 0;
+        int rewritten = 0;
+        
+        while(m.find()) {
+            String tag = m.group();
+            String src = HtmlHelpers.getAttribute(tag, "src");
+            if(src == null || HtmlHelpers.hasAttribute(tag, "srcset")) {
+                continue;
+            }
+            
+            /* Only images we generated ourselves can have variants */
+            String reference = src.split("[?#]")[0];
+            Path image = HtmlHelpers.resolveReference(outputdir, page, src);
+            if(image == null || !isScalable(reference)) {
+                continue;
+            }
+            Path source = Paths.get(filePath).resolve(outputdir.relativize(image));
+            if(!Files.isRegularFile(source)) {
+                continue;
+            }
+            
+            int[] dimensions;
+            try {
+                dimensions = dimensionCache.getDimensions(source);
+            } catch (IOException ex) {
+                dimensions = null;
+            }
+            if(dimensions == null) {
+                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not read the dimensions of image '%s'", src);
+                continue;
+            }
+            
+            /* Only smaller variants are useful, the original is the largest candidate */
+            StringBuilder srcset = new StringBuilder();
+            for(int width : config.responsiveWidths) {
+                if(width > 0 && width < dimensions[0]) {
+                    Path variant = image.resolveSibling(variantName(image.getFileName().toString(), width));
+                    variantSources.put(variant, source);
+                    variantWidths.put(variant, width);
+                    if(usableVariants.contains(variant)) {
+                        srcset.append(variantName(reference, width)).append(" ").append(width).append("w, ");
+                    }
+                }
+            }
+            if(!rewrite || srcset.length() == 0) {
+                continue;
+            }
+            srcset.append(reference).append(" ").append(dimensions[0]).append("w");
+            
+            String attributes = "srcset=\"" + srcset + "\"";
+            if(!HtmlHelpers.hasAttribute(tag, "sizes")) {
+                attributes += " sizes=\"" + config.responsiveSizes + "\"";
+            }
+            result.append(content, cursor, m.start());
+            result.append(HtmlHelpers.addAttributes(tag, attributes));
+            cursor = m.end();
+            rewritten++;
+        }
+        result.append(content.substring(cursor));
+        if(!rewrite) {
+            return true;
+        }
+        
+        try {
+            Files.write(page, result.toString().getBytes());
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save the image tags of " + page.getFileName().toString());
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        OutFormatter.printfLn("Page %s has %d responsive images", page.getFileName().toString(), rewritten);
+        return true;
+    }
+    
+    /**
+     * Generate a single variant, from the cache when the source did not change.
+     * @param variant the variant file in the app.
+     * @return true on success.
+     */
+    private boolean generateVariant(Path variant) {
+        Path source = variantSources.get(variant);
+        int width = variantWidths.get(variant);
+        boolean png = source.getFileName().toString().toLowerCase().endsWith(".png");
+        
+        try {
+            byte[] original = Files.readAllBytes(source);
+            Path cached = Paths.get(filePath + config.cacheDirectory, "responsive", 
+                    FileHelpers.contentHash(original) + "-" + width + "-q" + config.jpegQuality + (png ? ".png" : ".jpg"));
+            
+            if(!Files.exists(cached)) {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+                if(image == null) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "Could not decode image '%s'", source.toString());
+                    return false;
+                }
+                
+                byte[] encoded = ImageHelpers.encode(ImageHelpers.scale(image, width), png, config.jpegQuality);
+                Files.createDirectories(cached.getParent());
+                Files.write(cached, encoded);
+                OutFormatter.printfLn("Generated image variant '%s'", variant.getFileName().toString());
+            }
+            
+            /* A variant which is not smaller than the original only costs an extra request */
+            if(Files.size(cached) >= original.length) {
+                OutFormatter.printfLn("Image variant '%s' is not smaller than its source, skipping", variant.getFileName().toString());
+                return true;
+            }
+            
+            output.copy(cached, variant);
+            usableVariants.add(variant);
+        } catch (IOException | RuntimeException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not generate image variant '" + variant + "':");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Run the responsive image compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
+        if(outputdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Responsive images could not complete because the output directory is not present.");
+            return false;
+        }
+        
+        List<Path> pages = HtmlHelpers.listPages(outputdir);
+        if(pages == null) {
+            return false;
+        }
+        
+        for(Path page : pages) {
+            if(!handlePage(page, outputdir, false)) {
+                return false;
+            }
+        }
+        dimensionCache.save();
+        
+        /* Scaling is CPU bound, generate the variants on every core */
+        OutFormatter.printfLn("Generating %d image variants...", variantSources.size());
+        long failed = new ArrayList<>(variantSources.keySet()).parallelStream()
+                .filter(variant -> !generateVariant(variant))
+                .count();
+        if(failed > 0) {
+            return false;
+        }
+        
+        for(Path page : pages) {
+            if(!handlePage(page, outputdir, true)) {
+                return false;
+            }
+        }
+        
+        OutFormatter.printLn("All image variants are generated");
+        return true;
+    }
+}
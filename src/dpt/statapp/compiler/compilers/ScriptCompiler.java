@@ -32,7 +32,11 @@
 package dpt.statapp.compiler.compilers;
 
 import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.AssetUsage;
 import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.LocaleHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
 import dpt.statapp.compiler.output.ErrorFormatter;
 import dpt.statapp.compiler.output.ErrorType;
 import dpt.statapp.compiler.statement.Statement;
@@ -42,10 +46,10 @@ import dpt.statapp.compiler.statement.StatementType;
 import dpt.statapp.compiler.iface.Compiler;
 import dpt.statapp.compiler.output.OutFormatter;
 import dpt.statapp.compressor.Compressor;
-import dpt.statapp.compressor.HtmlCompressor;
-import dpt.statapp.compressor.JavascriptCompressor;
+import dpt.statapp.compressor.CompressorFactory;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -54,8 +58,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * This class parses all the script elements and 
@@ -66,19 +72,33 @@ import java.util.Set;
 public class ScriptCompiler implements Compiler{
     /* The file path of the app */ 
     private String filePath;
+    
+    /* The project configuration */
+    private Config config;
     private Boolean shouldCompress;
     
+    /* The destination of the finished script files */
+    private OutputSink output;
+    
     /**
      * Construct a new ScriptCompiler. 
      * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the destination of the finished script files.
      */
-    public ScriptCompiler(String filePath, Boolean shouldCompress) {
+    public ScriptCompiler(String filePath, Config config, Boolean shouldCompress, OutputSink output) {
         this.filePath = filePath;
+        this.config = config;
         this.shouldCompress = shouldCompress;
+        this.output = output;
+        this.htmlCompressor = CompressorFactory.createHtmlCompressor(config);
     }
     
-    /* A list containing all the sets of scripts used in the HTML documents */
-    List<Set<String>> allScriptSets = new ArrayList<>();
+    /* Compresses the HTML of every page with the configured profile */
+    private Compressor htmlCompressor;
+    
+    /* Records which scripts are used by which HTML documents */
+    AssetUsage scriptUsage = new AssetUsage();
     
     /* A set containing all the script files used in the complete app */
     Set<String> allScripts = new HashSet<>();
@@ -90,6 +110,32 @@ public class ScriptCompiler implements Compiler{
     Map<String, Path> scriptPathMap = new HashMap<>();
     Map<String, Integer> scriptOrderMap = new HashMap<>();
     
+    /* The final order of every script, kept for placing deferred page scripts */
+    Map<String, Integer> pageScriptOrderMap = new HashMap<>();
+    
+    /* Scripts marked as independent by every import, these are loaded async in defer mode and never bundled */
+    Set<String> asyncScripts = new HashSet<>();
+    
+    /* Scripts imported without the independent mark by at least one page */
+    Set<String> orderedScripts = new HashSet<>();
+    
+    /* Maps every script which is identical to another script to the script used instead */
+    Map<String, String> duplicateScripts = new HashMap<>();
+    
+    /* The locales which have their own global script bundle, empty when all locales are in one bundle */
+    List<String> bundleLocales = new ArrayList<>();
+    
+    /* The locale keys used by the pages and their scripts, null when every key is kept */
+    Set<String> localeKeys = null;
+    
+    /**
+     * Get the locale keys used by the pages and their scripts. 
+     * @return the used keys or null when every key must be kept. 
+     */
+    public Set<String> getLocaleKeys() {
+        return localeKeys;
+    }
+    
     /**
      * Execute the first round of script parsing. Check if all scripts can be found 
      * and remember which scripts are common to all files of the application. 
@@ -104,8 +150,8 @@ public class ScriptCompiler implements Compiler{
             return false;
         }
         
-        /* Set of all the scripts in this HTML file */
-        Set<String> fileScripts = new HashSet<>();
+        /* The id of this HTML file in the script usage */
+        int page = scriptUsage.addPage();
         
         int matchIndex = sourceContent.indexOf("<-");
 
@@ -118,33 +164,39 @@ public class ScriptCompiler implements Compiler{
             }
             
             try {
-                String stmtString = sourceContent.substring(matchIndex + 2, closing_tag - 1).trim();
-                Statement stmt = StatementParser.parseStatement(stmtString);
+                Statement stmt = StatementParser.parseStatement(sourceContent, matchIndex + 2, closing_tag - 1);
                 
                 /* Handle the script statements */
                 if(stmt.getType().equals(StatementType.SCRIPT)) {
                     /* Try to find the script file in the list */
-                    Path script = FileHelpers.getPathByFilename(stmt.getArgs()[0], scripts);
+                    Path script = FileHelpers.getPathByFilename(stmt.getArg(0), scripts);
                     if(script == null) {
-                        ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not find script '" + stmt.getArgs()[0] + "'");
+                        ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not find script '" + stmt.getArg(0) + "'");
                         return false;
                     }
                     
                     /* The file is found, add it to this files unique set */
-                    fileScripts.add(stmt.getArgs()[0]); 
-                    allScripts.add(stmt.getArgs()[0]);
-                    OutFormatter.printLn("Adding script to scriptset: " + stmt.getArgs()[0]);
+                    scriptUsage.use(page, stmt.getArg(0));
+                    allScripts.add(stmt.getArg(0));
+                    OutFormatter.printLn("Adding script to scriptset: " + stmt.getArg(0));
                     
                     /* Keep the lowest order */
-                    int order = Integer.parseInt(stmt.getArgs()[1]);
-                    if(scriptOrderMap.containsKey(stmt.getArgs()[0])) {
-                        if(scriptOrderMap.get(stmt.getArgs()[0]) > order) {
-                            scriptOrderMap.put(stmt.getArgs()[0], order);
+                    int order = Integer.parseInt(stmt.getArg(1));
+                    if(scriptOrderMap.containsKey(stmt.getArg(0))) {
+                        if(scriptOrderMap.get(stmt.getArg(0)) > order) {
+                            scriptOrderMap.put(stmt.getArg(0), order);
                         }
                     } else {
-                        scriptOrderMap.put(stmt.getArgs()[0], order);
+                        scriptOrderMap.put(stmt.getArg(0), order);
                     }
                     
+                    /* A script is only independent when every page marks it, else pages rely on its order */
+                    if(stmt.getArgCount() == 3 && !orderedScripts.contains(stmt.getArg(0))) {
+                        asyncScripts.add(stmt.getArg(0));
+                    } else if(stmt.getArgCount() != 3) {
+                        orderedScripts.add(stmt.getArg(0));
+                        asyncScripts.remove(stmt.getArg(0));
+                    }
                 }
             } catch(StatementParseException ex) {
                 ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not parse HTML file: " + ex.getMessage());
@@ -155,9 +207,6 @@ public class ScriptCompiler implements Compiler{
             matchIndex = sourceContent.indexOf("<-", closing_tag);
         }
         
-        /* Now add this file's set to the global list of sets */
-        allScriptSets.add(fileScripts);
-        
         return true;
     }
     
@@ -182,6 +231,11 @@ public class ScriptCompiler implements Compiler{
         int eof = sourceContent.length();
         int matchIndex = sourceContent.indexOf("<-");
         boolean globalScriptImported = false;
+        Set<String> importedScripts = new HashSet<>();
+        
+        /* In defer mode all script tags are collected and placed at the first script statement */
+        int deferIndex = -1;
+        List<String> deferredScripts = new ArrayList<>();
         
         while(matchIndex != -1) {
             
@@ -193,12 +247,25 @@ public class ScriptCompiler implements Compiler{
             }
             
             try {
-                String stmtString = sourceContent.substring(matchIndex + 2, closing_tag - 1).trim();
-                Statement stmt = StatementParser.parseStatement(stmtString);
+                Statement stmt = StatementParser.parseStatement(sourceContent, matchIndex + 2, closing_tag - 1);
+                String script = stmt.getType().equals(StatementType.SCRIPT) ? duplicateScripts.getOrDefault(stmt.getArg(0), stmt.getArg(0)) : null;
                 
                 /* Handle the script statements */
-                if(stmt.getType().equals(StatementType.SCRIPT)) {
-                    if(globalScripts.contains(stmt.getArgs()[0])) {
+                if(stmt.getType().equals(StatementType.SCRIPT) && config.deferScripts) {
+                    /* Remove the statement and remember where the script block goes */
+                    result.append(sourceContent.substring(cursor, matchIndex - 1));
+                    cursor = closing_tag + 2;
+                    if(deferIndex == -1) {
+                        deferIndex = result.length();
+                    }
+                    
+                    if(globalScripts.contains(script)) {
+                        globalScriptImported = true;
+                    } else if(!deferredScripts.contains(script)) {
+                        deferredScripts.add(script);
+                    }
+                } else if(stmt.getType().equals(StatementType.SCRIPT)) {
+                    if(globalScripts.contains(script)) {
                         /* This is a global script */
                         if(globalScriptImported) {
                             /* Global script allready imported, remove statement */
@@ -207,15 +274,19 @@ public class ScriptCompiler implements Compiler{
                         } else {
                             /* Import global script */
                             OutFormatter.printLn("Including global script...");
-                            String scriptContent = "<script src=\"" + Config.URI_FIRST_SLASH +"assets/js/globalscript.js\"></script>";
+                            String scriptContent = globalScriptTag(false);
                             result.append(sourceContent.substring(cursor, matchIndex - 1));
                             result.append(scriptContent);
                             cursor = closing_tag + 2;
                             globalScriptImported = true;
                         }
+                    } else if(!importedScripts.add(script)) {
+                        /* A copy of this script is already imported, remove statement */
+                        result.append(sourceContent.substring(cursor, matchIndex - 1));
+                        cursor = closing_tag + 2;
                     } else {
                         /* This is a page specific script, import directly */
-                        String scriptContent = "<script src=\"" + Config.URI_FIRST_SLASH + "assets/js/" + stmt.getArgs()[0] + "\"></script>";
+                        String scriptContent = "<script src=\"" + config.uriFirstSlash + "assets/js/" + script + "\"></script>";
                         result.append(sourceContent.substring(cursor, matchIndex - 1));
                         result.append(scriptContent);
                         cursor = closing_tag + 2;
@@ -235,12 +306,16 @@ public class ScriptCompiler implements Compiler{
             }
         }
         
+        /* Place the deferred script block */
+        if(deferIndex != -1) {
+            result.insert(deferIndex, buildDeferredScriptBlock(globalScriptImported, deferredScripts));
+        }
+        
         /* Now save the file in the output directory */
         try {
             /* Compress HTML */
-            HtmlCompressor comp = new HtmlCompressor();
             OutFormatter.printLn("Compressing HTML " + source.getFileName().toString());
-            String compressed = comp.compress(result.toString());
+            String compressed = htmlCompressor.compress(result.toString(), source.getFileName().toString());
             
             Files.write(new File(outdir.toFile(), source.getFileName().toString()).toPath(), compressed.getBytes());
         } catch (IOException ex) {
@@ -252,6 +327,227 @@ public class ScriptCompiler implements Compiler{
         return true;
     }
     
+    /**
+     * Get the id of the global script bundle of a locale file, the file name
+     * without extension in lower case as the page selects it by the lower
+     * case page or browser language, for example 'en-us' for en-US.js.
+     * @param name the file name of the locale.
+     * @return the bundle id.
+     */
+    private static String bundleId(String name) {
+        String id = name.lastIndexOf('.') > 0 ? name.substring(0, name.lastIndexOf('.')) : name;
+        return id.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Build the tag which loads the global script. With a bundle per locale a 
+     * tiny inline selector picks the bundle from the page language or the 
+     * browser language and falls back to the default locale. 
+     * @param defer true if the global script should be deferred.
+     * @return the script tag.
+     */
+    private String globalScriptTag(boolean defer)
+    {
+        String attribute = defer ? "defer " : "";
+        if(bundleLocales.isEmpty()) {
+            return "<script " + attribute + "src=\"" + config.uriFirstSlash + "assets/js/globalscript.js\"></script>";
+        }
+        
+        String configured = config.defaultLocale == null ? null : config.defaultLocale.toLowerCase(Locale.ROOT);
+        String defaultLocale = bundleLocales.contains(configured) ? configured : bundleLocales.get(0);
+        StringBuilder locales = new StringBuilder();
+        for(String locale : bundleLocales) {
+            if(locales.length() > 0) {
+                locales.append(",");
+            }
+            locales.append("\"").append(locale).append("\"");
+        }
+        
+        /* The default bundle is noted on the tag so later stages can find it */
+        return "<script data-locale-bundle=\"" + config.uriFirstSlash + "assets/js/globalscript." + defaultLocale + ".js\">"
+                + "(function(){var l=[" + locales + "],d=\"" + defaultLocale + "\",c=(document.documentElement.lang||navigator.language||d).toLowerCase();"
+                + "if(l.indexOf(c)<0){c=c.split(\"-\")[0];if(l.indexOf(c)<0){c=d;}}"
+                + "document.write('<script " + attribute + "src=\"" + config.uriFirstSlash + "assets/js/globalscript.'+c+'.js\"><\\/script>');})();</script>";
+    }
+    
+    /**
+     * Merge the used scripts with identical contents into one script, so it is
+     * compressed, bundled and downloaded only once. The copy used by the most
+     * pages is kept and gets the lowest order of all copies. The merged script
+     * is only independent when every copy is. 
+     * @return true on success.
+     */
+    private boolean mergeDuplicateScripts() {
+        List<String> used = new ArrayList<>(allScripts);
+        used.sort((a, b) -> scriptUsage.countPages(a) == scriptUsage.countPages(b) ? a.compareTo(b) : Integer.compare(scriptUsage.countPages(b), scriptUsage.countPages(a)));
+        
+        List<Path> files = new ArrayList<>();
+        for(String script : used) {
+            files.add(scriptPathMap.get(script));
+        }
+        
+        long savedBytes = 0;
+        try {
+            duplicateScripts = FileHelpers.findDuplicates(files);
+            for(String duplicate : duplicateScripts.keySet()) {
+                savedBytes += Files.size(scriptPathMap.get(duplicate));
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not compare the script files: ");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        for(Map.Entry<String, String> duplicate : duplicateScripts.entrySet()) {
+            String copy = duplicate.getKey();
+            String script = duplicate.getValue();
+            OutFormatter.printfLn("Script '%s' is identical to '%s', using '%s' only, pages importing both: %d", copy, script, script, scriptUsage.countSharedPages(copy, script));
+            scriptUsage.merge(copy, script);
+            allScripts.remove(copy);
+            scriptOrderMap.put(script, Math.min(scriptOrderMap.get(script), scriptOrderMap.remove(copy)));
+            if(!asyncScripts.remove(copy)) {
+                asyncScripts.remove(script);
+            }
+        }
+        
+        if(!duplicateScripts.isEmpty()) {
+            OutFormatter.printfLn("Found %d duplicate scripts, %d bytes are no longer compressed and downloaded twice", duplicateScripts.size(), savedBytes);
+        }
+        return true;
+    }
+    
+    /**
+     * Write the global script, or a global script per locale bundle, in 
+     * streaming mode. Every locale and script is compressed on its own and
+     * written through a buffer, so only one of them is held in memory. With
+     * a bundle per locale the scripts are written to a temporary file once, 
+     * which is copied behind the locale of every bundle.
+     * @param sortedScripts the global scripts in compiled order.
+     * @param outdir the script output directory.
+     * @param comp the script compressor.
+     * @return true on success.
+     * @throws IOException when a script file could not be written.
+     */
+    private boolean streamGlobalScript(List<String> sortedScripts, Path outdir, Compressor comp) throws IOException {
+        Map<String, Path> locales = new TreeMap<>();
+        try(DirectoryStream<Path> localeStream = Files.newDirectoryStream(Paths.get(filePath + config.localesDirectory))) {
+            for(Path locale : localeStream) {
+                String name = locale.getFileName().toString();
+                locales.put(bundleId(name), locale);
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not copy all locale files.");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        /* Write all locales and scripts to a single global script */
+        if(!config.localeBundles || !config.localesAsGlobalJs || locales.isEmpty()) {
+            OutFormatter.printLn("Streaming Javascript globalscript.js");
+            Path bundle = new File(outdir.toFile(), "globalscript.js").toPath();
+            try(Writer out = FileHelpers.openWriter(bundle, config.streamingBufferSize)) {
+                for(Path locale : locales.values()) {
+                    OutFormatter.printfLn("Adding locale '%s' to global script", locale.getFileName().toString());
+                    streamScript(LocaleHelpers.shake(locale.getFileName().toString(), FileHelpers.fileToString(locale), localeKeys), locale.getFileName().toString(), out, comp);
+                }
+                for(String script : sortedScripts) {
+                    streamScript(scriptPathMap.get(script), out, comp);
+                }
+            }
+            output.commit(bundle);
+            return true;
+        }
+        
+        /* Write the scripts once and copy them to the bundle of every locale */
+        Path scripts = Files.createTempFile(outdir, "globalscript", ".tmp");
+        try {
+            try(Writer out = FileHelpers.openWriter(scripts, config.streamingBufferSize)) {
+                for(String script : sortedScripts) {
+                    streamScript(scriptPathMap.get(script), out, comp);
+                }
+            }
+            
+            for(Map.Entry<String, Path> locale : locales.entrySet()) {
+                String bundle = "globalscript." + locale.getKey() + ".js";
+                OutFormatter.printfLn("Streaming Javascript %s with locale '%s'", bundle, locale.getValue().getFileName().toString());
+                Path bundleFile = new File(outdir.toFile(), bundle).toPath();
+                try(Writer out = FileHelpers.openWriter(bundleFile, config.streamingBufferSize)) {
+                    streamScript(LocaleHelpers.shake(locale.getValue().getFileName().toString(), FileHelpers.fileToString(locale.getValue()), localeKeys), locale.getValue().getFileName().toString(), out, comp);
+                    FileHelpers.appendFile(scripts, out, config.streamingBufferSize);
+                }
+                output.commit(bundleFile);
+                bundleLocales.add(locale.getKey());
+            }
+        } finally {
+            Files.deleteIfExists(scripts);
+        }
+        return true;
+    }
+    
+    /**
+     * Write a script to a global script in streaming mode. An uncompressed
+     * script file is copied through the buffer without reading it as a whole.
+     * @param script the script file.
+     * @param out the global script to write to.
+     * @param comp the script compressor.
+     * @throws IOException when the script could not be read or written.
+     */
+    private void streamScript(Path script, Writer out, Compressor comp) throws IOException {
+        if(shouldCompress) {
+            streamScript(FileHelpers.fileToString(script), script.getFileName().toString(), out, comp);
+        } else {
+            FileHelpers.appendFile(script, out, config.streamingBufferSize);
+        }
+    }
+    
+    /**
+     * Write the contents of a script to a global script in streaming mode. 
+     * A compressed script is ended with a newline, so it can not run into
+     * the next script when its last semicolon was left out.
+     * @param contents the script contents.
+     * @param name the name of the script, used for reporting.
+     * @param out the global script to write to.
+     * @param comp the script compressor.
+     * @throws IOException when the script could not be written.
+     */
+    private void streamScript(String contents, String name, Writer out, Compressor comp) throws IOException {
+        if(shouldCompress) {
+            out.write(comp.compress(contents, name));
+            out.write('\n');
+        } else {
+            out.write(contents);
+        }
+    }
+    
+    /**
+     * Build the script tags for a page in defer mode. The global script comes
+     * first followed by the page scripts in their compiled order. Deferred scripts
+     * execute in document order, independent scripts are loaded async.
+     * @param globalScriptImported true if the page uses the global script.
+     * @param scripts the page specific scripts.
+     * @return the script tags.
+     */
+    private String buildDeferredScriptBlock(boolean globalScriptImported, List<String> scripts)
+    {
+        StringBuilder block = new StringBuilder();
+        
+        if(globalScriptImported) {
+            OutFormatter.printLn("Including deferred global script...");
+            block.append(globalScriptTag(true));
+        }
+        
+        /* Sort the page scripts on their order, the lowest number is first */
+        List<String> sorted = new ArrayList<>(scripts);
+        sorted.sort((a, b) -> Integer.compare(pageScriptOrderMap.get(a), pageScriptOrderMap.get(b)));
+        
+        for(String script : sorted) {
+            String attribute = asyncScripts.contains(script) ? "async" : "defer";
+            block.append("<script ").append(attribute).append(" src=\"").append(config.uriFirstSlash).append("assets/js/").append(script).append("\"></script>");
+        }
+        
+        return block.toString();
+    }
+    
     /**
      * Run the HTML compiler stage. 
      * @return true on success, false on error. 
@@ -259,9 +555,9 @@ public class ScriptCompiler implements Compiler{
     @Override
     public boolean run() {
         /* Open all relevant directories */
-        Path htmldir = FileHelpers.openDirectory(filePath + Config.OUTPUT_DIRECTORY + "/" + Config.TEMP_DIRECTORY);
-        Path scriptdir = FileHelpers.openDirectory(filePath + Config.SCRIPT_DIRECTORY);
-        Path outputdir = FileHelpers.openDirectory(filePath + Config.OUTPUT_DIRECTORY);
+        Path htmldir = FileHelpers.openDirectory(filePath + config.outputDirectory + "/" + config.tempDirectory);
+        Path scriptdir = FileHelpers.openDirectory(filePath + config.scriptDirectory);
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
         if(htmldir == null || scriptdir == null || outputdir == null) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "HTML compilation could not complete because not all directories are present.");
             return false;
@@ -299,38 +595,41 @@ public class ScriptCompiler implements Compiler{
             return false;
         }
         
+        if(!mergeDuplicateScripts()) {
+            return false;
+        }
+        
         /* Determine global script files */
         OutFormatter.printLn("Determining global scripts...");
         for(String script : allScripts) {
-            boolean glbl = true;
-
-            /* If the script is present in all sets it's global */
-            for(Set<String> set : allScriptSets) {
-                OutFormatter.printf("Checking if script " + script + " is global...");
-                if(!set.contains(script)) {
-                    glbl = false;
-                    OutFormatter.printLn("No");
-                    break;
-                }
+            /* Independent scripts are never bundled in defer mode */
+            if(config.deferScripts && asyncScripts.contains(script)) {
+                OutFormatter.printLn("Script " + script + " is loaded async, not global");
+                continue;
             }
 
-            if(glbl) {
+            /* If the script is used by every page it's global */
+            OutFormatter.printf("Checking if script " + script + " is global...");
+            if(scriptUsage.isGlobal(script)) {
                 OutFormatter.printLn("Yes");
                 globalScripts.add(script);
                 OutFormatter.printLn("Found global script: " + script);
+            } else {
+                OutFormatter.printLn("No");
             }
         }
         OutFormatter.printLn("All global scripts listed");
 
         /* Generate script documents */
         OutFormatter.printLn("Generating script documents");
-        Path outdir = FileHelpers.createDirectoryIfNotExists(filePath + Config.OUTPUT_DIRECTORY + "/assets/js/");
+        Path outdir = FileHelpers.createDirectoryIfNotExists(filePath + config.outputDirectory + "/assets/js/");
 
         /* Buffer for global script document */
         StringBuilder globalScriptDocument = new StringBuilder();
 
         try {
             List<String> sortedScripts = new ArrayList<>();
+            pageScriptOrderMap.putAll(scriptOrderMap);
             
             /* Sort the global javascripts */
             while(!scriptOrderMap.isEmpty()) {
@@ -355,29 +654,19 @@ public class ScriptCompiler implements Compiler{
                 }
             }
             
-            /* Add locales if asked */
-            try(DirectoryStream<Path> localeStream = Files.newDirectoryStream(Paths.get(filePath + Config.LOCALES_DIRECTORY))) {      
-                /* Add all locales to global script */
-                for(Path locale :  localeStream) {
-                    OutFormatter.printfLn("Adding locale '%s' to global script", locale.getFileName().toString());
-                    String localeContents = FileHelpers.fileToString(locale);
-                    globalScriptDocument.append(localeContents);
+            /* Find the locale keys used by the pages and the scripts they include */
+            if(config.localeTreeShaking) {
+                List<Path> sources = HtmlHelpers.listPages(htmldir);
+                if(sources != null) {
+                    for(String script : pageScriptOrderMap.keySet()) {
+                        sources.add(scriptPathMap.get(script));
+                    }
+                    localeKeys = LocaleHelpers.collectKeys(sources, config);
                 }
-            } catch (Exception ex) {
-                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not copy all locale files.");
-                ex.printStackTrace(System.err);
-                return false;
-            }     
-            
-            // Build the global script document 
-            for(String script : sortedScripts) {
-                /* Read the script file */
-                String contents = FileHelpers.fileToString(scriptPathMap.get(script));
-                globalScriptDocument.append(contents);
             }
             
             /* Construct the javascript compressor */
-            Compressor comp = new JavascriptCompressor();
+            Compressor comp = CompressorFactory.createScriptCompressor(config);
             
             for(String script : allScripts) {
                 /* The contents of this script should go to a separate document */
@@ -387,20 +676,68 @@ public class ScriptCompiler implements Compiler{
                 OutFormatter.printLn("Compressing Javascript " + script);
 
 
-                String compressed = comp.compress(contents);
+                String compressed = comp.compress(contents, script);
 
                 System.out.println(compressed);
                 
-                Files.write(new File(outdir.toFile(), script).toPath(), compressed.getBytes());
+                output.write(new File(outdir.toFile(), script).toPath(), compressed.getBytes());
             }
 
-            /* Write global script file */
-            OutFormatter.printLn("Compressing Javascript globalscript.js");
-            String compressed;
-            if (shouldCompress) compressed = comp.compress(globalScriptDocument.toString());
-            else compressed = globalScriptDocument.toString();
+            /* In streaming mode the members are written to the global script one by one */
+            if(config.streaming) {
+                if(!streamGlobalScript(sortedScripts, outdir, comp)) {
+                    return false;
+                }
+            } else {
+                /* Add locales if asked */
+                Map<String, String> localeDocuments = new TreeMap<>();
+                try(DirectoryStream<Path> localeStream = Files.newDirectoryStream(Paths.get(filePath + config.localesDirectory))) {      
+                    /* Add all locales to global script or to their own bundle */
+                    for(Path locale :  localeStream) {
+                        String localeContents = LocaleHelpers.shake(locale.getFileName().toString(), FileHelpers.fileToString(locale), localeKeys);
+                        if(config.localeBundles && config.localesAsGlobalJs) {
+                            String name = locale.getFileName().toString();
+                            String id = bundleId(name);
+                            OutFormatter.printfLn("Adding locale '%s' to global script bundle '%s'", name, id);
+                            localeDocuments.put(id, localeContents);
+                        } else {
+                            OutFormatter.printfLn("Adding locale '%s' to global script", locale.getFileName().toString());
+                            globalScriptDocument.append(localeContents);
+                        }
+                    }
+                } catch (Exception ex) {
+                    ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not copy all locale files.");
+                    ex.printStackTrace(System.err);
+                    return false;
+                }     
+            
+                // Build the global script document 
+                for(String script : sortedScripts) {
+                    /* Read the script file */
+                    String contents = FileHelpers.fileToString(scriptPathMap.get(script));
+                    globalScriptDocument.append(contents);
+                }
+            
+                /* Write a global script file per locale, each with only its own locale */
+                for(Map.Entry<String, String> locale : localeDocuments.entrySet()) {
+                    String bundle = "globalscript." + locale.getKey() + ".js";
+                    OutFormatter.printLn("Compressing Javascript " + bundle);
+                    String document = locale.getValue() + globalScriptDocument.toString();
+                    String compressed = shouldCompress ? comp.compress(document, bundle) : document;
+                    output.write(new File(outdir.toFile(), bundle).toPath(), compressed.getBytes());
+                    bundleLocales.add(locale.getKey());
+                }
 
-            Files.write(new File(outdir.toFile(), "globalscript.js").toPath(), compressed.getBytes());
+                /* Write global script file */
+                if(localeDocuments.isEmpty()) {
+                    OutFormatter.printLn("Compressing Javascript globalscript.js");
+                    String compressed;
+                    if (shouldCompress) compressed = comp.compress(globalScriptDocument.toString(), "globalscript.js");
+                    else compressed = globalScriptDocument.toString();
+
+                    output.write(new File(outdir.toFile(), "globalscript.js").toPath(), compressed.getBytes());
+                }
+            }
         } catch (IOException ex) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save script to output folder:");
             ex.printStackTrace(System.err);
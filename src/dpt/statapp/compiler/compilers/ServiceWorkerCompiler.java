@@ -0,0 +1,215 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ServiceWorkerCompiler.java
+ * Created on October 19, 2026, 11:48 AM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import dpt.statapp.compressor.Compressor;
+import dpt.statapp.compressor.CompressorFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * This class generates a service worker which precaches every compiled
+ * file together with a manifest listing the files and their content hashes. 
+ * This is the last stage of the compilation process as every page gets the
+ * service worker registration and every output file must be final. 
+ * @author Daan Pape
+ */
+public class ServiceWorkerCompiler implements Compiler {
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    private Boolean shouldCompress;
+    
+    /* The service worker template and the placeholder for the manifest */
+    private static final String TEMPLATE = "serviceworker.js";
+    private static final String MANIFEST_PLACEHOLDER = "/*PRECACHE_MANIFEST*/";
+    
+    /* The length of the revision hash in the manifest */
+    private static final int REVISION_LENGTH = 16;
+    
+    /* The compiled files and the destination of the service worker */
+    private OutputSink output;
+    
+    /**
+     * Construct a new ServiceWorkerCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param shouldCompress true if the service worker should be compressed.
+     * @param output the compiled files and the service worker.
+     */
+    public ServiceWorkerCompiler(String filePath, Config config, Boolean shouldCompress, OutputSink output) {
+        this.filePath = filePath;
+        this.config = config;
+        this.shouldCompress = shouldCompress;
+        this.output = output;
+    }
+    
+    /**
+     * Add the service worker registration to every page. 
+     * @param outputdir the output directory of the app.
+     * @return true on success, false on error.
+     */
+    private boolean registerInPages(Path outputdir)
+    {
+        List<Path> pages = HtmlHelpers.listPages(outputdir);
+        if(pages == null) {
+            return false;
+        }
+        
+        String registration = "<script>if(\"serviceWorker\" in navigator){navigator.serviceWorker.register(\"" 
+                + config.uriFirstSlash + config.serviceWorkerFile + "\");}</script>";
+        
+        for(Path page : pages) {
+            String content = FileHelpers.fileToString(page);
+            if(content == null) {
+                return false;
+            }
+            
+            try {
+                Files.write(page, HtmlHelpers.insertInBody(content, registration).getBytes());
+            } catch (IOException ex) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not add the service worker registration to " + page.getFileName().toString());
+                ex.printStackTrace(System.err);
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Build the precache manifest of every output file. 
+     * @param outputdir the output directory of the app.
+     * @return the manifest as JSON array.
+     * @throws IOException when the output directory could not be read.
+     */
+    private String buildManifest(Path outputdir) throws IOException
+    {
+        List<Path> files = output.listFiles();
+        
+        StringBuilder manifest = new StringBuilder("[");
+        int entries = 0;
+        for(Path file : files) {
+            String url = outputdir.relativize(file).toString().replace('\\', '/');
+            if(url.equals(config.serviceWorkerFile) || url.equals(config.precacheManifestFile) || file.getFileName().toString().startsWith(".")) {
+                continue;
+            }
+            
+            if(manifest.length() > 1) {
+                manifest.append(",");
+            }
+            String revision = output.getHash(file).substring(0, REVISION_LENGTH);
+            entries++;
+            manifest.append("\n{\"url\":\"").append(url.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\"revision\":\"").append(revision).append("\"}");
+        }
+        manifest.append("\n]");
+        
+        OutFormatter.printfLn("Precache manifest lists %d files", entries);
+        return manifest.toString();
+    }
+    
+    /**
+     * Read the service worker template. 
+     * @return the template contents.
+     * @throws IOException when the template could not be read.
+     */
+    private String readTemplate() throws IOException
+    {
+        try(InputStream in = ServiceWorkerCompiler.class.getResourceAsStream(TEMPLATE)) {
+            if(in == null) {
+                throw new IOException("Service worker template '" + TEMPLATE + "' is missing");
+            }
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Run the service worker compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
+        if(outputdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Service worker generation could not complete because the output directory is not present.");
+            return false;
+        }
+        
+        OutFormatter.printLn("Registering service worker in all pages...");
+        if(!registerInPages(outputdir)) {
+            return false;
+        }
+        
+        try {
+            OutFormatter.printLn("Generating precache manifest...");
+            String manifest = buildManifest(outputdir);
+            output.write(outputdir.resolve(config.precacheManifestFile), manifest.getBytes(StandardCharsets.UTF_8));
+            
+            OutFormatter.printLn("Generating service worker...");
+            String worker = readTemplate().replace(MANIFEST_PLACEHOLDER, manifest);
+            if(shouldCompress) {
+                Compressor comp = CompressorFactory.createScriptCompressor(config);
+                worker = comp.compress(worker, config.serviceWorkerFile);
+            }
+            output.write(outputdir.resolve(config.serviceWorkerFile), worker.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not generate the service worker:");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        OutFormatter.printLn("Service worker is generated");
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   SnapshotDiff.java
+ * Created on October 19, 2026, 02:50 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.Snapshot;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class lists the outputs which were added, changed or removed since
+ * an earlier compilation, based on the snapshot of the last compilation. 
+ * Every output is printed on its own line prefixed with A, M or D so 
+ * upload scripts can transfer only the changed files. 
+ * @author Daan Pape
+ */
+public class SnapshotDiff {
+    /* The project directory */
+    private String filepath;
+    
+    /* The snapshot to compare with */
+    private Path previous;
+    
+    /**
+     * Construct a new SnapshotDiff. 
+     * @param filepath the project directory.
+     * @param previous the snapshot of the earlier compilation.
+     */
+    public SnapshotDiff(String filepath, Path previous) {
+        this.filepath = filepath;
+        this.previous = previous;
+    }
+    
+    /**
+     * Print the changed outputs. 
+     * @return true on success.
+     */
+    public boolean printDiff() {
+        Config config = Config.load(filepath);
+        if(config == null) {
+            return false;
+        }
+        
+        Path currentFile = Paths.get(filepath + config.snapshotFile);
+        if(!Files.exists(currentFile)) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "No snapshot found at '%s', compile the project with snapshot.enabled=true first", currentFile.toString());
+            return false;
+        }
+        
+        Snapshot old = Snapshot.load(previous);
+        Snapshot current = Snapshot.load(currentFile);
+        if(old == null || current == null) {
+            return false;
+        }
+        
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        current.diff(old, added, changed, removed);
+        
+        for(String path : added) {
+            OutFormatter.printLn("A " + path);
+        }
+        for(String path : changed) {
+            OutFormatter.printLn("M " + path);
+        }
+        for(String path : removed) {
+            OutFormatter.printLn("D " + path);
+        }
+        
+        System.err.printf("%d added, %d changed, %d removed, %d unchanged%n", added.size(), changed.size(), removed.size(), 
+                current.getFileCount() - added.size() - changed.size());
+        return true;
+    }
+}
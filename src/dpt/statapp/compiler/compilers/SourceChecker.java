@@ -0,0 +1,220 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   SourceChecker.java
+ * Created on October 19, 2026, 03:25 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import dpt.statapp.compiler.statement.Statement;
+import dpt.statapp.compiler.statement.StatementParseException;
+import dpt.statapp.compiler.statement.StatementParser;
+import dpt.statapp.compiler.statement.StatementType;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * This class validates the pages and partials of a project without 
+ * compiling them. Every statement is parsed the same way the compiler
+ * stages do and every partial, style and script it references must exist.
+ * All errors are reported with their file, line and column. Nothing is 
+ * compressed or written. 
+ * @author Daan Pape
+ */
+public class SourceChecker {
+    /* The project directory */
+    private String filepath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* The available source files */
+    private List<Path> partials;
+    private List<Path> styles;
+    private List<Path> scripts;
+    
+    /**
+     * Construct a new SourceChecker. 
+     * @param filepath the project directory.
+     */
+    public SourceChecker(String filepath) {
+        this.filepath = filepath;
+    }
+    
+    /**
+     * List the files in a source directory.
+     * @param dir the directory relative to the project.
+     * @param errors receives an error when the directory can not be read.
+     * @return the files in the directory.
+     */
+    private List<Path> listFiles(String dir, List<String> errors) {
+        List<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(filepath + dir))) {
+            for(Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException ex) {
+            errors.add(dir + ": could not list directory");
+        }
+        return files;
+    }
+    
+    /**
+     * Format an error location.
+     * @param file the file containing the error.
+     * @param lineStarts the offsets at which the lines of the file start.
+     * @param offset the offset of the error.
+     * @param message the error message.
+     * @return the formatted error.
+     */
+    private String error(Path file, int[] lineStarts, int offset, String message) {
+        int line = Arrays.binarySearch(lineStarts, offset);
+        if(line < 0) {
+            line = -line - 2;
+        }
+        return String.format("%s:%d:%d: %s", Paths.get(filepath).relativize(file).toString(), line + 1, offset - lineStarts[line] + 1, message);
+    }
+    
+    /**
+     * Check all statements in a page or partial.
+     * @param file the page or partial.
+     * @param isPartial true when the file is a partial.
+     * @return the errors, empty when the file is valid.
+     */
+    private List<String> checkFile(Path file, boolean isPartial) {
+        List<String> errors = new ArrayList<>();
+        String content = FileHelpers.fileToString(file);
+        if(content == null) {
+            errors.add(file + ": could not read file");
+            return errors;
+        }
+        
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for(int i = 0; i < content.length(); ++i) {
+            if(content.charAt(i) == '\n') {
+                starts.add(i + 1);
+            }
+        }
+        int[] lineStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+        
+        int matchIndex = content.indexOf("<-");
+        while(matchIndex != -1) {
+            int closing = content.indexOf("->", matchIndex);
+            if(closing == -1) {
+                errors.add(error(file, lineStarts, matchIndex, "statement is never closed with '->'"));
+                break;
+            }
+            
+            /* The stages replace the statement including the character in front of it */
+            if(matchIndex == 0 && !isPartial) {
+                errors.add(error(file, lineStarts, matchIndex, "a statement can not be the first character of a page"));
+            }
+            
+            /* Parse exactly like the compiler stages do */
+            try {
+                Statement stmt = StatementParser.parseStatement(content, matchIndex + 2, Math.max(matchIndex + 2, closing - 1));
+                String[] args = stmt.getArgs();
+                
+                if(stmt.getType().equals(StatementType.PARTIAL)) {
+                    if(isPartial) {
+                        errors.add(error(file, lineStarts, matchIndex, "partials can not include other partials"));
+                    } else if(FileHelpers.getPathByFilename(args[0], partials) == null) {
+                        errors.add(error(file, lineStarts, matchIndex, "partial '" + args[0] + "' not found in " + config.partialDirectory));
+                    }
+                } else if(stmt.getType().equals(StatementType.STYLE)) {
+                    if(FileHelpers.getPathByFilename(args[0], styles) == null) {
+                        errors.add(error(file, lineStarts, matchIndex, "style '" + args[0] + "' not found in " + config.styleDirectory));
+                    }
+                } else if(stmt.getType().equals(StatementType.SCRIPT)) {
+                    if(FileHelpers.getPathByFilename(args[0], scripts) == null) {
+                        errors.add(error(file, lineStarts, matchIndex, "script '" + args[0] + "' not found in " + config.scriptDirectory));
+                    }
+                    if(!args[1].matches("-?\\d+")) {
+                        errors.add(error(file, lineStarts, matchIndex, "script order '" + args[1] + "' is not a number"));
+                    }
+                }
+            } catch (StatementParseException ex) {
+                errors.add(error(file, lineStarts, matchIndex, ex.getMessage()));
+            }
+            
+            matchIndex = content.indexOf("<-", closing);
+        }
+        
+        return errors;
+    }
+    
+    /**
+     * Check the project. 
+     * @return true when no errors were found.
+     */
+    public boolean check() {
+        long start = System.nanoTime();
+        
+        config = Config.load(filepath);
+        if(config == null) {
+            return false;
+        }
+        
+        List<String> errors = new ArrayList<>();
+        List<Path> pages = listFiles(config.pagesDirectory, errors);
+        partials = listFiles(config.partialDirectory, errors);
+        styles = listFiles(config.styleDirectory, errors);
+        scripts = listFiles(config.scriptDirectory, errors);
+        
+        /* Every file is checked on its own, use every core */
+        List<Path> files = new ArrayList<>(pages);
+        files.addAll(partials);
+        List<List<String>> results = files.parallelStream()
+                .map(file -> checkFile(file, partials.contains(file)))
+                .collect(Collectors.toList());
+        
+        for(List<String> result : results) {
+            errors.addAll(result);
+        }
+        for(String error : errors) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, error);
+        }
+        
+        OutFormatter.printfLn("Checked %d pages and %d partials in %d ms: %d errors", pages.size(), partials.size(), 
+                (System.nanoTime() - start) / 1000000, errors.size());
+        return errors.isEmpty();
+    }
+}
@@ -32,7 +32,11 @@
 package dpt.statapp.compiler.compilers;
 
 import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.AssetUsage;
 import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.ImageHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.helper.SpriteSheetBuilder;
 import dpt.statapp.compiler.output.ErrorFormatter;
 import dpt.statapp.compiler.output.ErrorType;
 import dpt.statapp.compiler.statement.Statement;
@@ -42,18 +46,23 @@ import dpt.statapp.compiler.statement.StatementType;
 import dpt.statapp.compiler.iface.Compiler;
 import dpt.statapp.compiler.output.OutFormatter;
 import dpt.statapp.compressor.Compressor;
-import dpt.statapp.compressor.CssCompressor;
+import dpt.statapp.compressor.CompressorFactory;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This class parses the style statements and merges the
@@ -65,16 +74,26 @@ public class StyleCompiler implements Compiler{
     /* The file path of the app */ 
     String filePath;
     
+    /* The project configuration */
+    Config config;
+    
+    /* The destination of the finished style files */
+    OutputSink output;
+    
     /**
      * Construct a new StyleCompiler. 
      * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the destination of the finished style files.
      */
-    public StyleCompiler(String filePath) {
+    public StyleCompiler(String filePath, Config config, OutputSink output) {
         this.filePath = filePath;
+        this.config = config;
+        this.output = output;
     }
     
-    /* A list containing all the sets of styles used in the HTML documents */
-    List<Set<String>> allStyleSets = new ArrayList<>();
+    /* Records which styles are used by which HTML documents */
+    AssetUsage styleUsage = new AssetUsage();
     
     /* A set containing all the style files used in the complete app */
     Set<String> allStyles = new HashSet<>();
@@ -85,6 +104,141 @@ public class StyleCompiler implements Compiler{
     /* Maps the filename of a style to the filepath */
     Map<String, Path> stylePathMap = new HashMap<>();
     
+    /* Maps every style which is identical to another style to the style used instead */
+    Map<String, String> duplicateStyles = new HashMap<>();
+    
+    /* Combines the small background images, null when sprites are disabled */
+    SpriteSheetBuilder sprites = null;
+    
+    /* The number of requests saved and the bytes added by embedding assets */
+    int embeddedRequests = 0;
+    long embeddedBytes = 0;
+    
+    /* Matches a url in a style, group 2 is the reference */
+    private static final Pattern URL_PATTERN = Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+    
+    /* The media types of the assets which can be embedded */
+    private static final Map<String, String> MEDIA_TYPES = new HashMap<>();
+    static {
+        MEDIA_TYPES.put("png", "image/png");
+        MEDIA_TYPES.put("jpg", "image/jpeg");
+        MEDIA_TYPES.put("jpeg", "image/jpeg");
+        MEDIA_TYPES.put("gif", "image/gif");
+        MEDIA_TYPES.put("webp", "image/webp");
+        MEDIA_TYPES.put("svg", "image/svg+xml");
+        MEDIA_TYPES.put("woff", "font/woff");
+        MEDIA_TYPES.put("woff2", "font/woff2");
+        MEDIA_TYPES.put("ttf", "font/ttf");
+        MEDIA_TYPES.put("otf", "font/otf");
+    }
+    
+    /**
+     * Resolve an asset a style references which can be embedded. The asset 
+     * is read from the app when it was generated, else from the project. 
+     * @param ref the reference in the style.
+     * @param outdir the directory the style is written to.
+     * @return the asset file or null when it can not be embedded.
+     */
+    private Path resolveAsset(String ref, Path outdir) {
+        Path appdir = Paths.get(filePath + config.outputDirectory).normalize();
+        int dot = ref.lastIndexOf('.');
+        String type = dot == -1 ? null : MEDIA_TYPES.get(ref.substring(dot + 1).toLowerCase());
+        if(type == null || ref.startsWith("/") || ref.contains(":")) {
+            return null;
+        }
+
+        Path asset = outdir.resolve(ref).normalize();
+        if(!asset.startsWith(appdir)) {
+            return null;
+        }
+        
+        /* A sprite sheet is shared by many rules, every copy would hold the whole sheet */
+        if(sprites != null && sprites.isSheet(asset)) {
+            return null;
+        }
+        if(!Files.isRegularFile(asset)) {
+            asset = Paths.get(filePath).normalize().resolve(appdir.relativize(asset));
+        }
+        return Files.isRegularFile(asset) ? asset : null;
+    }
+    
+    /**
+     * Count how many times a style references every asset which can be embedded. 
+     * @param css the style contents.
+     * @param outdir the directory the style is written to.
+     * @param references the counts to add to.
+     */
+    private void countAssets(String css, Path outdir, Map<Path, Integer> references) {
+        Matcher m = URL_PATTERN.matcher(css);
+        while(m.find()) {
+            Path asset = resolveAsset(m.group(2).trim(), outdir);
+            if(asset != null) {
+                references.merge(asset, 1, Integer::sum);
+            }
+        }
+    }
+    
+    /**
+     * Embed the small images and fonts a style references as data URI.
+     * An asset referenced more than once in the bundle is left as request,
+     * every reference would get its own copy of the data. 
+     * @param css the style contents.
+     * @param outdir the directory the style is written to.
+     * @param bundle the name of the style file, used for reporting.
+     * @param references the asset references of the whole bundle, null when the style is the whole bundle.
+     * @return the style with the embedded assets. 
+     */
+    private String embedAssets(String css, Path outdir, String bundle, Map<Path, Integer> references) {
+        if(references == null) {
+            references = new HashMap<>();
+            countAssets(css, outdir, references);
+        }
+        
+        Set<String> embedded = new HashSet<>();
+        StringBuilder result = new StringBuilder();
+        Matcher m = URL_PATTERN.matcher(css);
+        int cursor = 0;
+        
+        while(m.find()) {
+            String ref = m.group(2).trim();
+            Path asset = resolveAsset(ref, outdir);
+            if(asset == null || references.getOrDefault(asset, 0) > 1) {
+                continue;
+            }
+            String type = MEDIA_TYPES.get(ref.substring(ref.lastIndexOf('.') + 1).toLowerCase());
+            
+            try {
+                
+                /* Embed the image as it would be optimized in the app */
+                byte[] data = Files.readAllBytes(asset);
+                if(config.optimizeImages && ImageHelpers.isPng(data)) {
+                    byte[] optimized = ImageHelpers.optimizePng(data);
+                    if(optimized != null && optimized.length < data.length) {
+                        data = optimized;
+                    }
+                }
+                if(data.length > config.inlineAssetMaxBytes) {
+                    continue;
+                }
+                
+                result.append(css, cursor, m.start());
+                result.append("url(\"data:").append(type).append(";base64,").append(Base64.getEncoder().encodeToString(data)).append("\")");
+                cursor = m.end();
+                embedded.add(ref);
+            } catch (IOException ex) {
+                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not embed '%s' in %s", ref, bundle);
+            }
+        }
+        result.append(css.substring(cursor));
+        
+        if(!embedded.isEmpty()) {
+            OutFormatter.printfLn("Embedded assets in %s: %d requests eliminated, %d bytes added", bundle, embedded.size(), result.length() - css.length());
+            embeddedRequests += embedded.size();
+            embeddedBytes += result.length() - css.length();
+        }
+        return result.toString();
+    }
+    
     /**
      * Execute the first round of style parsing. Check if all styles can be found 
      * and remember which styles are common to all files of the application. 
@@ -99,8 +253,8 @@ public class StyleCompiler implements Compiler{
             return false;
         }
         
-        /* Set of all the styles in this HTML file */
-        Set<String> fileStyles = new HashSet<>();
+        /* The id of this HTML file in the style usage */
+        int page = styleUsage.addPage();
         
         int matchIndex = sourceContent.indexOf("<-");
 
@@ -113,21 +267,20 @@ public class StyleCompiler implements Compiler{
             }
             
             try {
-                String stmtString = sourceContent.substring(matchIndex + 2, closing_tag - 1).trim();
-                Statement stmt = StatementParser.parseStatement(stmtString);
+                Statement stmt = StatementParser.parseStatement(sourceContent, matchIndex + 2, closing_tag - 1);
                 
                 /* Handle the style statements */
                 if(stmt.getType().equals(StatementType.STYLE)) {
                     /* Try to find the style file in the list */
-                    Path style = FileHelpers.getPathByFilename(stmt.getArgs()[0], styles);
+                    Path style = FileHelpers.getPathByFilename(stmt.getArg(0), styles);
                     if(style == null) {
-                        ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not find style '" + stmt.getArgs()[0] + "'");
+                        ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not find style '" + stmt.getArg(0) + "'");
                         return false;
                     }
                     
                     /* The file is found, add it to this files unique set */
-                    fileStyles.add(stmt.getArgs()[0]); 
-                    allStyles.add(stmt.getArgs()[0]);
+                    styleUsage.use(page, stmt.getArg(0));
+                    allStyles.add(stmt.getArg(0));
                 }
             } catch(StatementParseException ex) {
                 ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not parse HTML file: " + ex.getMessage());
@@ -138,9 +291,47 @@ public class StyleCompiler implements Compiler{
             matchIndex = sourceContent.indexOf("<-", closing_tag);
         }
         
-        /* Now add this file's set to the global list of sets */
-        allStyleSets.add(fileStyles);
+        return true;
+    }
+    
+    /**
+     * Merge the used styles with identical contents into one style, so it is
+     * compressed and downloaded only once. The copy used by the most pages 
+     * is kept. 
+     * @return true on success.
+     */
+    private boolean mergeDuplicateStyles() {
+        List<String> used = new ArrayList<>(allStyles);
+        used.sort((a, b) -> styleUsage.countPages(a) == styleUsage.countPages(b) ? a.compareTo(b) : Integer.compare(styleUsage.countPages(b), styleUsage.countPages(a)));
+        
+        List<Path> files = new ArrayList<>();
+        for(String style : used) {
+            files.add(stylePathMap.get(style));
+        }
+        
+        long savedBytes = 0;
+        try {
+            duplicateStyles = FileHelpers.findDuplicates(files);
+            for(String duplicate : duplicateStyles.keySet()) {
+                savedBytes += Files.size(stylePathMap.get(duplicate));
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not compare the style files: ");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        for(Map.Entry<String, String> duplicate : duplicateStyles.entrySet()) {
+            String copy = duplicate.getKey();
+            String style = duplicate.getValue();
+            OutFormatter.printfLn("Style '%s' is identical to '%s', using '%s' only, pages importing both: %d", copy, style, style, styleUsage.countSharedPages(copy, style));
+            styleUsage.merge(copy, style);
+            allStyles.remove(copy);
+        }
         
+        if(!duplicateStyles.isEmpty()) {
+            OutFormatter.printfLn("Found %d duplicate styles, %d bytes are no longer compressed and downloaded twice", duplicateStyles.size(), savedBytes);
+        }
         return true;
     }
     
@@ -162,9 +353,6 @@ public class StyleCompiler implements Compiler{
      */
     private boolean handleHtmlFileSecondRound(Path source, Path outdir)
     {
-        /* Buffer to hold the new String in */
-        StringBuilder result = new StringBuilder();
-        
         String sourceContent = FileHelpers.fileToString(source);
         if(sourceContent == null) {
             return false;
@@ -174,61 +362,52 @@ public class StyleCompiler implements Compiler{
         int eof = sourceContent.length();
         int matchIndex = sourceContent.indexOf("<-");
         boolean globalStyleImported = false;
+        Set<String> importedStyles = new HashSet<>();
         
-        while(matchIndex != -1) {
-            
-            /* Find closing tag index */
-            int closing_tag = sourceContent.indexOf("->", matchIndex);
-            if(closing_tag == -1) {
-                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "[SYNTAX] Could not find matching closing tag at %s", sourceContent.substring(matchIndex));
-                return false;
-            }
-            
-            try {
-                String stmtString = sourceContent.substring(matchIndex + 2, closing_tag - 1).trim();
-                Statement stmt = StatementParser.parseStatement(stmtString);
-                
-                /* Handle the style statements */
-                if(stmt.getType().equals(StatementType.STYLE)) {
-                    if(globalStyles.contains(stmt.getArgs()[0])) {
-                        /* This is a global style */
-                        if(globalStyleImported) {
-                            /* Global style allready imported, remove statement */
-                            result.append(sourceContent.substring(cursor, matchIndex - 1));
-                            cursor = closing_tag + 2;
-                        } else {
-                            /* Import global style */
-                            String styleContent = "<link rel=\"stylesheet\" href=\"" + Config.URI_FIRST_SLASH  + "assets/css/globalstyle.css\">";
-                            result.append(sourceContent.substring(cursor, matchIndex - 1));
-                            result.append(styleContent);
-                            cursor = closing_tag + 2;
-                            globalStyleImported = true;
-                        }
-                    } else {
-                        /* This is a page specific style, import directly */
-                        String styleContent = "<link rel=\"stylesheet\" href=\"" + Config.URI_FIRST_SLASH + "assets/css/" + stmt.getArgs()[0] + "\">";
-                        result.append(sourceContent.substring(cursor, matchIndex - 1));
-                        result.append(styleContent);
+        /* Stream the result to the output directory */
+        try(Writer result = FileHelpers.openWriter(new File(outdir.toFile(), source.getFileName().toString()).toPath(), config.streamingBufferSize)) {
+            while(matchIndex != -1) {
+
+                /* Find closing tag index */
+                int closing_tag = sourceContent.indexOf("->", matchIndex);
+                if(closing_tag == -1) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "[SYNTAX] Could not find matching closing tag at %s", sourceContent.substring(matchIndex));
+                    return false;
+                }
+
+                try {
+                    Statement stmt = StatementParser.parseStatement(sourceContent, matchIndex + 2, closing_tag - 1);
+
+                    /* Handle the style statements */
+                    if(stmt.getType().equals(StatementType.STYLE)) {
+                        String style = duplicateStyles.getOrDefault(stmt.getArg(0), stmt.getArg(0));
+                        result.write(sourceContent, cursor, matchIndex - 1 - cursor);
                         cursor = closing_tag + 2;
+                        
+                        if(globalStyles.contains(style)) {
+                            /* This is a global style, import it once and remove the other statements */
+                            if(!globalStyleImported) {
+                                result.write("<link rel=\"stylesheet\" href=\"" + config.uriFirstSlash  + "assets/css/globalstyle.css\">");
+                                globalStyleImported = true;
+                            }
+                        } else if(importedStyles.add(style)) {
+                            /* This is a page specific style, import directly unless a copy is already imported */
+                            result.write("<link rel=\"stylesheet\" href=\"" + config.uriFirstSlash + "assets/css/" + style + "\">");
+                        }
                     }
+                } catch(StatementParseException ex) {
+                    ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not parse HTML file: " + ex.getMessage());
+                    return false;
+                }
+
+                /* Search the next tag */
+                matchIndex = sourceContent.indexOf("<-", closing_tag);
+
+                /* Write rest of file if no match was found */
+                if(matchIndex == -1) {
+                    result.write(sourceContent, cursor, eof - cursor);
                 }
-            } catch(StatementParseException ex) {
-                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not parse HTML file: " + ex.getMessage());
-                return false;
-            }
-            
-            /* Search the next tag */
-            matchIndex = sourceContent.indexOf("<-", closing_tag);
-            
-            /* Write rest of file if no match was found */
-            if(matchIndex == -1) {
-                result.append(sourceContent.substring(cursor, eof));
             }
-        }
-        
-        /* Now save the file in the output directory */
-        try {
-            Files.write(new File(outdir.toFile(), source.getFileName().toString()).toPath(), result.toString().getBytes());
         } catch (IOException ex) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save result of HTML parse to output folder:");
             ex.printStackTrace(System.err);
@@ -245,8 +424,8 @@ public class StyleCompiler implements Compiler{
     @Override
     public boolean run() {
         /* Open all relevant directories */
-        Path htmldir = FileHelpers.openDirectory(filePath + Config.OUTPUT_DIRECTORY + "/" + Config.TEMP_DIRECTORY);
-        Path styledir = FileHelpers.openDirectory(filePath + Config.STYLE_DIRECTORY);
+        Path htmldir = FileHelpers.openDirectory(filePath + config.outputDirectory + "/" + config.tempDirectory);
+        Path styledir = FileHelpers.openDirectory(filePath + config.styleDirectory);
         if(htmldir == null || styledir == null) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "HTML compilation could not complete because not all directories are present.");
             return false;
@@ -284,20 +463,15 @@ public class StyleCompiler implements Compiler{
             return false;
         }
         
+        if(!mergeDuplicateStyles()) {
+            return false;
+        }
+        
         /* Determine global style files */
         OutFormatter.printLn("Determining global styles...");
         for(String style : allStyles) {
-            boolean glbl = true;
-
-            /* If the style is present in all sets it's global */
-            for(Set<String> set : allStyleSets) {
-                if(!set.contains(style)) {
-                    glbl = false;
-                    break;
-                }
-            }
-
-            if(glbl) {
+            /* If the style is used by every page it's global */
+            if(styleUsage.isGlobal(style)) {
                 globalStyles.add(style);
                 OutFormatter.printLn("Found global style: " + style);
             }
@@ -306,36 +480,90 @@ public class StyleCompiler implements Compiler{
 
         /* Generate style documents */
         OutFormatter.printLn("Generating style documents");
-        Path outdir = FileHelpers.createDirectoryIfNotExists(filePath + Config.OUTPUT_DIRECTORY + "/assets/css/");
+        Path outdir = FileHelpers.createDirectoryIfNotExists(filePath + config.outputDirectory + "/assets/css/");
 
-        /* Buffer for global style document */
+        /* Buffer for global style document, in streaming mode the members are written to the file instead */
         StringBuilder globalStyleDoc = new StringBuilder();
+        Path globalStyleFile = new File(outdir.toFile(), "globalstyle.css").toPath();
 
-        try {
-            Compressor compressor = new CssCompressor();
+        try(Writer globalStyleOut = config.streaming ? FileHelpers.openWriter(globalStyleFile, config.streamingBufferSize) : null) {
+            Compressor compressor = CompressorFactory.createStyleCompressor(config);
+            
+            /* Combine the small background images of all styles */
+            if(config.cssSprites) {
+                sprites = new SpriteSheetBuilder(filePath, config, outdir, output);
+                for(String style : allStyles) {
+                    sprites.collect(FileHelpers.fileToString(stylePathMap.get(style)));
+                }
+                if(!sprites.build()) {
+                    return false;
+                }
+            }
+            
+            /* In streaming mode the global members are embedded one at a time, count the references of the whole bundle first */
+            Map<Path, Integer> globalReferences = null;
+            if(globalStyleOut != null && config.inlineAssetMaxBytes > 0) {
+                globalReferences = new HashMap<>();
+                for(String style : globalStyles) {
+                    String contents = FileHelpers.fileToString(stylePathMap.get(style));
+                    countAssets(sprites != null ? sprites.rewrite(contents) : contents, outdir, globalReferences);
+                }
+            }
             
             for(String style : allStyles) {
                 /* Read the style file */
                 String contents = FileHelpers.fileToString(stylePathMap.get(style));
+                if(sprites != null) {
+                    contents = sprites.rewrite(contents);
+                }
 
-                if(globalStyles.contains(style)) {
+                if(globalStyles.contains(style) && globalStyleOut != null) {
+                    /* Compress this style on its own and stream it to the combined document */
+                    if(config.inlineAssetMaxBytes > 0) {
+                        contents = embedAssets(contents, outdir, "globalstyle.css", globalReferences);
+                    }
+                    globalStyleOut.write(compressor.compress(contents, style));
+                } else if(globalStyles.contains(style)) {
                     /* The contents of this style should go to the combined document */
                     globalStyleDoc.append(contents);
                 } else {
                     /* The contents of this style should go to a separate document */
-                    String compressed = compressor.compress(contents);
-                    Files.write(new File(outdir.toFile(), style).toPath(), compressed.getBytes());
+                    if(config.inlineAssetMaxBytes > 0) {
+                        contents = embedAssets(contents, outdir, style, null);
+                    }
+                    String compressed = compressor.compress(contents, style);
+                    output.write(new File(outdir.toFile(), style).toPath(), compressed.getBytes());
                 }
             }
 
             /* Write global style file */
-            String compressed = compressor.compress(globalStyleDoc.toString());
-            Files.write(new File(outdir.toFile(), "globalstyle.css").toPath(), compressed.getBytes());
+            if(globalStyleOut == null) {
+                String globalStyle = globalStyleDoc.toString();
+                if(config.inlineAssetMaxBytes > 0) {
+                    globalStyle = embedAssets(globalStyle, outdir, "globalstyle.css", null);
+                }
+                String compressed = compressor.compress(globalStyle, "globalstyle.css");
+                output.write(globalStyleFile, compressed.getBytes());
+            }
         } catch (IOException ex) {
             ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save style to output folder:");
             ex.printStackTrace(System.err);
             return false;
         }
+        
+        /* The streamed global style is finished once its writer is closed */
+        if(config.streaming) {
+            try {
+                output.commit(globalStyleFile);
+            } catch (IOException ex) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save style to output folder:");
+                ex.printStackTrace(System.err);
+                return false;
+            }
+        }
+        if(config.inlineAssetMaxBytes > 0) {
+            OutFormatter.printfLn("Embedded assets eliminated %d requests and added %d bytes to the styles", embeddedRequests, embeddedBytes);
+        }
         OutFormatter.printLn("All style documents are generated");
 
         /* Replace style statements */
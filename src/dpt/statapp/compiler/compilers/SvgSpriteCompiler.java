@@ -0,0 +1,433 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   SvgSpriteCompiler.java
+ * Created on October 19, 2026, 12:35 PM
+ */
+package dpt.statapp.compiler.compilers;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.helper.FileHelpers;
+import dpt.statapp.compiler.helper.HtmlHelpers;
+import dpt.statapp.compiler.helper.OutputSink;
+import dpt.statapp.compiler.iface.Compiler;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class combines the SVG icons of the pages in a single sprite of
+ * symbols. Image tags referencing an icon and inline copies of an icon are
+ * replaced by a reference to the symbol, so the icons are downloaded once 
+ * and cached. Inline SVG images which occur more than once are moved to 
+ * the sprite as well. 
+ * @author Daan Pape
+ */
+public class SvgSpriteCompiler implements Compiler {
+    /* Matches an SVG element without nested SVG elements, group 1 holds the attributes, group 2 the contents */
+    private static final Pattern SVG_PATTERN = Pattern.compile("<svg\\b([^>]*)>(.*?)</svg\\s*>", Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+    
+    /* Presentation attributes of the root element which are kept on the symbol */
+    private static final String[] SYMBOL_ATTRIBUTES = {"preserveAspectRatio", "fill", "fill-rule", "stroke", "stroke-width", "stroke-linecap", "stroke-linejoin"};
+    
+    /* The file path of the app */ 
+    private String filePath;
+    
+    /* The project configuration */
+    private Config config;
+    
+    /* The icon files which are combined */
+    private List<PathMatcher> includes = new ArrayList<>();
+    
+    /* The symbols by id, their view boxes and the width and height of their images */
+    private Map<String, String> symbols = new LinkedHashMap<>();
+    private Map<String, String> viewBoxes = new HashMap<>();
+    private Map<String, String[]> sizes = new HashMap<>();
+    
+    /* Maps the referenced icon files and the inline icons to their symbol id, null when an icon can not be combined */
+    private Map<Path, String> fileIds = new LinkedHashMap<>();
+    private Map<String, String> inlineIds = new HashMap<>();
+    
+    /* The number of times every inline icon occurs in the pages */
+    private Map<String, Integer> inlineCounts = new LinkedHashMap<>();
+    private Map<String, String> inlineMarkup = new HashMap<>();
+    
+    /* The destination of the icon sprite */
+    private OutputSink output;
+    
+    /**
+     * Construct a new SvgSpriteCompiler. 
+     * @param filePath the file path of the application
+     * @param config the project configuration.
+     * @param output the destination of the icon sprite.
+     */
+    public SvgSpriteCompiler(String filePath, Config config, OutputSink output) {
+        this.filePath = filePath;
+        this.config = config;
+        this.output = output;
+        
+        for(String include : config.svgSpriteInclude) {
+            includes.add(FileSystems.getDefault().getPathMatcher("glob:" + include));
+        }
+    }
+    
+    /**
+     * Remove the prolog, comments and the whitespace between the tags of an SVG image. 
+     * @param svg the SVG source.
+     * @return the minified SVG.
+     */
+    private static String minify(String svg) {
+        return svg.replaceAll("(?s)<\\?xml.*?\\?>", "")
+                .replaceAll("(?s)<!DOCTYPE[^>]*>", "")
+                .replaceAll("(?s)<!--.*?-->", "")
+                .replaceAll(">\\s+<", "><")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+    
+    /**
+     * Get the view box of an SVG root tag, from its width and height when it has none.
+     * @param tag the SVG opening tag.
+     * @return the view box or null when it is unknown.
+     */
+    private static String getViewBox(String tag) {
+        String viewBox = HtmlHelpers.getAttribute(tag, "viewBox");
+        if(viewBox != null) {
+            return viewBox.trim();
+        }
+        
+        String width = HtmlHelpers.getAttribute(tag, "width");
+        String height = HtmlHelpers.getAttribute(tag, "height");
+        if(width != null && height != null && width.matches("\\d+(\\.\\d+)?(px)?") && height.matches("\\d+(\\.\\d+)?(px)?")) {
+            return "0 0 " + width.replace("px", "") + " " + height.replace("px", "");
+        }
+        return null;
+    }
+    
+    /**
+     * Get the intrinsic size of an SVG image, from its width and height or 
+     * else from its view box.
+     * @param tag the SVG opening tag.
+     * @param viewBox the view box of the image.
+     * @return the width and the height or null when it is unknown.
+     */
+    private static String[] getSize(String tag, String viewBox) {
+        String width = HtmlHelpers.getAttribute(tag, "width");
+        String height = HtmlHelpers.getAttribute(tag, "height");
+        if(width != null && height != null && width.trim().matches("\\d+(\\.\\d+)?(px)?") && height.trim().matches("\\d+(\\.\\d+)?(px)?")) {
+            return new String[] {width.trim().replace("px", ""), height.trim().replace("px", "")};
+        }
+        
+        String[] box = viewBox.split("[\\s,]+");
+        return box.length == 4 ? new String[] {box[2], box[3]} : null;
+    }
+    
+    /**
+     * Get the key which identifies an icon, two icons with the same view box 
+     * and contents look the same.
+     * @param svg a matcher on the SVG element.
+     * @return the key or null when the icon can not be made a symbol. 
+     */
+    private static String getKey(Matcher svg) {
+        String contents = minify(svg.group(2));
+        String viewBox = getViewBox("<svg" + svg.group(1) + ">");
+        
+        /* Ids, styles and scripts could clash with the page or the other icons */
+        if(viewBox == null || contents.contains("<svg") || contents.matches("(?s).*\\sid\\s*=.*") || contents.contains("<style") || contents.contains("<script")) {
+            return null;
+        }
+        return viewBox + "|" + contents;
+    }
+    
+    /**
+     * Add an icon to the sprite.
+     * @param id the symbol id.
+     * @param svg a matcher on the SVG element.
+     * @return true if the icon was added.
+     */
+    private boolean addSymbol(String id, Matcher svg) {
+        String key = getKey(svg);
+        if(key == null) {
+            return false;
+        }
+        
+        String tag = "<svg" + svg.group(1) + ">";
+        String viewBox = getViewBox(tag);
+        StringBuilder symbol = new StringBuilder("<symbol id=\"").append(id).append("\" viewBox=\"").append(viewBox).append("\"");
+        for(String attribute : SYMBOL_ATTRIBUTES) {
+            String value = HtmlHelpers.getAttribute(tag, attribute);
+            if(value != null) {
+                symbol.append(" ").append(attribute).append("=\"").append(value).append("\"");
+            }
+        }
+        symbol.append(">").append(minify(svg.group(2))).append("</symbol>");
+        
+        symbols.put(id, symbol.toString());
+        viewBoxes.put(id, viewBox);
+        sizes.put(id, getSize(tag, viewBox));
+        inlineIds.put(key, id);
+        return true;
+    }
+    
+    /**
+     * Check if an image is an icon which should be combined. 
+     * @param image the image file.
+     * @return true for included SVG images.
+     */
+    private boolean isIcon(Path image) {
+        if(!image.getFileName().toString().toLowerCase().endsWith(".svg")) {
+            return false;
+        }
+        for(PathMatcher include : includes) {
+            if(include.matches(image.getFileName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Find the icons a page references and the inline icons it contains.
+     * @param page the compiled page.
+     * @param outputdir the output directory of the app.
+     * @return true on success, false on error.
+     */
+    private boolean handlePageFirstRound(Path page, Path outputdir) {
+        String content = FileHelpers.fileToString(page);
+        if(content == null) {
+            return false;
+        }
+        
+        Matcher img = HtmlHelpers.findTags(content, "img");
+        while(img.find()) {
+            String src = HtmlHelpers.getAttribute(img.group(), "src");
+            Path image = src == null ? null : HtmlHelpers.resolveReference(outputdir, page, src);
+            if(image != null && isIcon(image)) {
+                fileIds.putIfAbsent(image, null);
+            }
+        }
+        
+        Matcher svg = SVG_PATTERN.matcher(content);
+        while(svg.find()) {
+            String key = getKey(svg);
+            if(key != null) {
+                inlineCounts.merge(key, 1, Integer::sum);
+                inlineMarkup.putIfAbsent(key, svg.group());
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Replace the icons in a page by references to the sprite.
+     * @param page the compiled page.
+     * @param outputdir the output directory of the app.
+     * @param sprite the reference to the sprite.
+     * @return true on success, false on error.
+     */
+    private boolean handlePageSecondRound(Path page, Path outputdir, String sprite) {
+        String content = FileHelpers.fileToString(page);
+        if(content == null) {
+            return false;
+        }
+        int replaced = 0;
+        
+        /* Inline icons keep their own attributes */
+        StringBuilder result = new StringBuilder();
+        Matcher svg = SVG_PATTERN.matcher(content);
+        int cursor = 0;
+        while(svg.find()) {
+            String key = getKey(svg);
+            String id = key == null ? null : inlineIds.get(key);
+            if(id == null) {
+                continue;
+            }
+            result.append(content, cursor, svg.start());
+            result.append("<svg").append(svg.group(1)).append("><use href=\"").append(sprite).append("#").append(id).append("\"></use></svg>");
+            cursor = svg.end();
+            replaced++;
+        }
+        result.append(content.substring(cursor));
+        content = result.toString();
+        
+        /* Image tags become an SVG element with the view box of the icon */
+        result = new StringBuilder();
+        Matcher img = HtmlHelpers.findTags(content, "img");
+        cursor = 0;
+        while(img.find()) {
+            String tag = img.group();
+            String src = HtmlHelpers.getAttribute(tag, "src");
+            Path image = src == null ? null : HtmlHelpers.resolveReference(outputdir, page, src);
+            String id = image == null ? null : fileIds.get(image);
+            if(id == null) {
+                continue;
+            }
+            
+            StringBuilder element = new StringBuilder("<svg viewBox=\"").append(viewBoxes.get(id)).append("\"");
+            for(String attribute : new String[] {"id", "class", "style", "width", "height"}) {
+                String value = HtmlHelpers.getAttribute(tag, attribute);
+                if(value != null) {
+                    element.append(" ").append(attribute).append("=\"").append(HtmlHelpers.escapeAttribute(value)).append("\"");
+                }
+            }
+            
+            /* Without a size the element would fill its container, keep the size of the image */
+            String[] size = sizes.get(id);
+            if(size != null && HtmlHelpers.getAttribute(tag, "width") == null && HtmlHelpers.getAttribute(tag, "height") == null) {
+                element.append(" width=\"").append(size[0]).append("\" height=\"").append(size[1]).append("\"");
+            }
+            
+            String alt = HtmlHelpers.getAttribute(tag, "alt");
+            if(alt != null && !alt.isEmpty()) {
+                element.append(" role=\"img\" aria-label=\"").append(HtmlHelpers.escapeAttribute(alt)).append("\"");
+            } else {
+                element.append(" aria-hidden=\"true\"");
+            }
+            element.append("><use href=\"").append(sprite).append("#").append(id).append("\"></use></svg>");
+            
+            result.append(content, cursor, img.start());
+            result.append(element);
+            cursor = img.end();
+            replaced++;
+        }
+        result.append(content.substring(cursor));
+        
+        try {
+            Files.write(page, result.toString().getBytes());
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not save the icons of " + page.getFileName().toString());
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        OutFormatter.printfLn("Page %s references %d icons from the sprite", page.getFileName().toString(), replaced);
+        return true;
+    }
+    
+    /**
+     * Get the symbol id for an icon file, 'icon-star.svg' becomes 'icon-star'.
+     * @param image the icon file.
+     * @return the symbol id.
+     */
+    private String toId(Path image) {
+        String name = image.getFileName().toString();
+        String id = name.substring(0, name.length() - ".svg".length()).replaceAll("[^A-Za-z0-9_-]", "-");
+        while(symbols.containsKey(id)) {
+            id += "-";
+        }
+        return id;
+    }
+    
+    /**
+     * Run the SVG sprite compiler stage. 
+     * @return true on success, false on error. 
+     */
+    @Override
+    public boolean run() {
+        Path outputdir = FileHelpers.openDirectory(filePath + config.outputDirectory);
+        if(outputdir == null) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "SVG sprite could not complete because the output directory is not present.");
+            return false;
+        }
+        
+        List<Path> pages = HtmlHelpers.listPages(outputdir);
+        if(pages == null) {
+            return false;
+        }
+        
+        for(Path page : pages) {
+            if(!handlePageFirstRound(page, outputdir)) {
+                return false;
+            }
+        }
+        
+        /* The referenced icon files, read from the project as the app does not contain the images yet */
+        for(Path image : new ArrayList<>(fileIds.keySet())) {
+            Path source = Paths.get(filePath).resolve(outputdir.relativize(image));
+            String contents = Files.isRegularFile(source) ? FileHelpers.fileToString(source) : null;
+            Matcher svg = contents == null ? null : SVG_PATTERN.matcher(minify(contents));
+            String id = toId(image);
+            if(svg != null && svg.find() && addSymbol(id, svg)) {
+                fileIds.put(image, id);
+            } else {
+                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Icon '%s' can not be combined in the sprite", image.getFileName().toString());
+            }
+        }
+        
+        /* Inline icons which occur more than once */
+        for(Map.Entry<String, Integer> inline : inlineCounts.entrySet()) {
+            if(inline.getValue() > 1 && !inlineIds.containsKey(inline.getKey())) {
+                Matcher svg = SVG_PATTERN.matcher(inlineMarkup.get(inline.getKey()));
+                svg.find();
+                addSymbol("svg-" + FileHelpers.contentHash(inline.getKey().getBytes()).substring(0, 8), svg);
+            }
+        }
+        
+        if(symbols.isEmpty()) {
+            OutFormatter.printLn("No icons to combine in the SVG sprite");
+            return true;
+        }
+        
+        /* Write the sprite */
+        Path sprite = outputdir.resolve(config.imageDirectory).resolve(config.svgSpriteFile);
+        StringBuilder document = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\">");
+        for(String symbol : symbols.values()) {
+            document.append(symbol);
+        }
+        document.append("</svg>");
+        try {
+            output.write(sprite, document.toString().getBytes());
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not write the SVG sprite:");
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        OutFormatter.printfLn("Combined %d icons in the SVG sprite %s", symbols.size(), config.svgSpriteFile);
+        
+        String reference = HtmlHelpers.toReference(config, outputdir, sprite);
+        for(Path page : pages) {
+            if(!handlePageSecondRound(page, outputdir, reference)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * DPT-StatApp service worker, generated by the compiler. 
+ * Every compiled file is precached under its content revision. When a file
+ * changes this script changes too, the browser then installs the new worker
+ * in the background and only downloads the changed files.
+ */
+var PRECACHE = "dpt-statapp-precache";
+var MANIFEST = /*PRECACHE_MANIFEST*/;
+
+/* Maps the file URL relative to the scope to its cache key */
+var revisions = {};
+MANIFEST.forEach(function(entry) {
+    revisions[entry.url] = entry.url + "?__rev=" + entry.revision;
+});
+
+function relativeUrl(url) {
+    var scope = self.registration.scope;
+    if(url.indexOf(scope) !== 0) {
+        return null;
+    }
+    var path = url.substring(scope.length).split(/[?#]/)[0];
+    if(path === "" || path.charAt(path.length - 1) === "/") {
+        path += "index.html";
+    }
+    return path;
+}
+
+self.addEventListener("install", function(event) {
+    event.waitUntil(caches.open(PRECACHE).then(function(cache) {
+        return Promise.all(MANIFEST.map(function(entry) {
+            var key = revisions[entry.url];
+            return cache.match(key).then(function(cached) {
+                if(cached) {
+                    return;
+                }
+                return fetch(entry.url, {cache: "no-cache"}).then(function(response) {
+                    if(!response.ok) {
+                        throw new Error("Could not precache " + entry.url);
+                    }
+                    return cache.put(key, response);
+                });
+            });
+        }));
+    }).then(function() {
+        return self.skipWaiting();
+    }));
+});
+
+self.addEventListener("activate", function(event) {
+    var current = {};
+    Object.keys(revisions).forEach(function(url) {
+        current[new URL(revisions[url], self.registration.scope).href] = true;
+    });
+    
+    /* Remove the revisions which are no longer in the manifest */
+    event.waitUntil(caches.open(PRECACHE).then(function(cache) {
+        return cache.keys().then(function(requests) {
+            return Promise.all(requests.filter(function(request) {
+                return !current[request.url];
+            }).map(function(request) {
+                return cache["delete"](request);
+            }));
+        });
+    }).then(function() {
+        return self.clients.claim();
+    }));
+});
+
+self.addEventListener("fetch", function(event) {
+    if(event.request.method !== "GET") {
+        return;
+    }
+    
+    var path = relativeUrl(event.request.url);
+    if(path === null || !revisions.hasOwnProperty(path)) {
+        return;
+    }
+    
+    event.respondWith(caches.open(PRECACHE).then(function(cache) {
+        return cache.match(revisions[path]).then(function(cached) {
+            return cached || fetch(event.request);
+        });
+    }));
+});
@@ -42,13 +42,16 @@ import java.io.File;
  */
 public class AppGenerator {
     protected String filepath;
+    protected Config config;
     
     /**
      * Construct the appGenerator object. 
      * @param filepath the filepath where to create the app. 
+     * @param config the configuration containing the directory names.
      */
-    public AppGenerator(String filepath) {
+    public AppGenerator(String filepath, Config config) {
         this.filepath = filepath;
+        this.config = config;
     }
     
     /**
@@ -75,44 +78,44 @@ public class AppGenerator {
     public boolean generateApp()
     {
         /* Create pages directory */
-        if(!createDirectory("HTML pages", Config.PAGES_DIRECTORY)) {
+        if(!createDirectory("HTML pages", config.pagesDirectory)) {
             return false;
         }
         
         /* Create partials directory */
-        if(!createDirectory("HTML partials", Config.PARTIAL_DIRECTORY)) {
+        if(!createDirectory("HTML partials", config.partialDirectory)) {
             return false;
         }
         
         /* Create app directory */
-        if(!createDirectory("app", Config.OUTPUT_DIRECTORY)) {
+        if(!createDirectory("app", config.outputDirectory)) {
             return false;
         }
         
         /* Create styles directory */
-        if(!createDirectory("styles", Config.STYLE_DIRECTORY)) {
+        if(!createDirectory("styles", config.styleDirectory)) {
             return false;
         }
         
         /* Create images directory */
-        if(!createDirectory("images", Config.IMAGE_DIRECTORY)) {
+        if(!createDirectory("images", config.imageDirectory)) {
             return false;
         }
         
         /* Create locales directory */
-        if(!createDirectory("locales", Config.LOCALES_DIRECTORY)) {
+        if(!createDirectory("locales", config.localesDirectory)) {
             return false;
         }
         
 
         
         /* Create scripts directory */
-        if(!createDirectory("scripts", Config.SCRIPT_DIRECTORY)) {
+        if(!createDirectory("scripts", config.scriptDirectory)) {
             return false;
         }
         
         /* Create fonts directory */
-        if(!createDirectory("fonts", Config.FONT_DIRECTORY)) {
+        if(!createDirectory("fonts", config.fontDirectory)) {
             return false;
         }
         
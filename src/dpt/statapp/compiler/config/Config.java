@@ -31,28 +31,448 @@
  */
 package dpt.statapp.compiler.config;
 
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compressor.HtmlProfile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
 /**
- * The DPTechnics templating engine configuration
+ * The DPTechnics templating engine configuration. Every project
+ * has its own configuration instance so multiple projects can be 
+ * compiled in the same process. 
  * @author Daan Pape
  */
 public class Config {
     public static String VERSION_STRING = "0.1 alpha";
-    public static String SCRIPT_DIRECTORY = "dist/js";
-    public static String STYLE_DIRECTORY = "dist/css";
-    public static String IMAGE_DIRECTORY = "assets/images";
-    public static String FONT_DIRECTORY = "assets/fonts";
-    public static String OUTPUT_DIRECTORY = "app";
-    public static String LOCALES_DIRECTORY = "assets/locales";
-    public static String PAGES_DIRECTORY = "html";
-    public static String PARTIAL_DIRECTORY = "partials";
-    public static String TEMP_DIRECTORY = "tempOutputDirectory";
-    public static String URI_FIRST_SLASH = "";
+    
+    /**
+     * The optional per project configuration file, relative to the
+     * project root. Every key in this file overrides the default below.
+     */
+    public static String PROJECT_CONFIG_FILE = "statapp.properties";
+    
+    /**
+     * The names of the available compressors and of the build mode which
+     * selects the fast compressors. 
+     */
+    public static final String YUI_COMPRESSOR = "yui";
+    public static final String FAST_COMPRESSOR = "fast";
+    public static final String PREVIEW_MODE = "preview";
+    public static final String DEV_MODE = "dev";
+    
+    public String scriptDirectory = "dist/js";
+    public String styleDirectory = "dist/css";
+    public String imageDirectory = "assets/images";
+    public String fontDirectory = "assets/fonts";
+    public String outputDirectory = "app";
+    public String localesDirectory = "assets/locales";
+    public String pagesDirectory = "html";
+    public String partialDirectory = "partials";
+    public String tempDirectory = "tempOutputDirectory";
+    public String cacheDirectory = ".statapp-cache";
+    public String uriFirstSlash = "";
     
     /**
      * Handle locale files as Javascript files and include
      * them in the global script file. Used in the DPTechnics
      * products.
      */
-    public static boolean LOCALES_AS_GLOBAL_JS = true;
+    public boolean localesAsGlobalJs = true;
+    
+    /**
+     * Build a global script bundle per locale file instead of one bundle
+     * with every locale, for example globalscript.en.js for en.js. Pages pick
+     * their bundle from the page or browser language and fall back to the
+     * default locale, which is the first locale when it is not set. 
+     */
+    public boolean localeBundles = false;
+    public String defaultLocale = null;
+    
+    /**
+     * Remove the locale keys which are not referenced by any page or any 
+     * script the pages use. A reference is a match of localeKeyPattern, the
+     * key is its first matching group. When a page or script matches 
+     * localeDynamicPattern the keys can not be determined and every key 
+     * is kept. Both patterns default to calls of the localeFunction 
+     * translate helper, so a call which counts for a literal key also 
+     * counts when its key is built at runtime. Only the helper itself is
+     * matched, as a generic pattern also matches the unrelated calls in 
+     * minified libraries.
+     */
+    public boolean localeTreeShaking = false;
+    public String localeFunction = "i18n.t";
+    public String localeKeyPattern = localeKeyPatternFor(localeFunction);
+    public String localeDynamicPattern = localeDynamicPatternFor(localeFunction);
+    
+    /**
+     * Load all scripts with the defer attribute. The global script and
+     * the page scripts are then placed together, in compiled order, so
+     * the HTML parser never waits for a script download. Scripts marked
+     * as async in their statement get the async attribute instead.
+     */
+    public boolean deferScripts = false;
+    
+    /**
+     * The compressor for scripts, 'yui' for the YUI compressor or 'fast' for
+     * the built-in compressor which only removes comments and whitespace.
+     * The fast compressor is many times faster but does not rename variables.
+     */
+    public String scriptCompressor = YUI_COMPRESSOR;
+    
+    /**
+     * The compressor for styles, 'yui' for the YUI compressor or 'fast' for
+     * the built-in compressor which reads the style once, so it stays fast
+     * for very large styles.
+     */
+    public String styleCompressor = YUI_COMPRESSOR;
+    
+    /**
+     * The HTML compression profile. 'dev' leaves the HTML as written, 'safe'
+     * collapses whitespace and 'aggressive' also removes comments, quotes and
+     * the whitespace next to block tags and compresses inline scripts and
+     * styles. When it is not set dev builds use 'dev' and other builds 'safe'.
+     */
+    public String htmlProfile = null;
+    
+    /**
+     * The time budget in milliseconds of compressing a single script, style
+     * or page. When the YUI compressor exceeds it or fails the fast compressor
+     * is used instead, when a fast compressor or the page compressor does the
+     * asset is not compressed. 0 disables the budget. The compressions of
+     * this project which ran out of time and still run in the background are
+     * counted in abandonedCompressions, so a stuck asset of one project does
+     * not change how the other projects of a compile-all run are compressed.
+     */
+    public long compressBudget = 60 * 1000;
+    public final AtomicInteger abandonedCompressions = new AtomicInteger();
+    
+    /**
+     * Build the global bundles in streaming mode, for very large sites. Every
+     * bundle member and locale is compressed on its own and streamed to the
+     * bundle file, so only one of them is held in memory at a time instead 
+     * of the whole bundle, uncompressed members are copied without reading 
+     * them as a whole. The partial and style stages always write the pages 
+     * through buffers of streamingBufferSize characters. The build fails when
+     * the heap in use after a garbage collection exceeded streamingMaxHeap 
+     * megabytes, 0 disables the ceiling. The heap is shared by all projects
+     * of a compile-all run.
+     */
+    public boolean streaming = false;
+    public int streamingBufferSize = 64 * 1024;
+    public long streamingMaxHeap = 0;
+    
+    /**
+     * Add prefetch hints for the pages which are most likely opened next,
+     * based on the links between the compiled pages. At most prefetchMaxPages
+     * pages are prefetched per page and the prefetched pages together with
+     * the scripts and styles they need must fit in prefetchByteBudget bytes.
+     */
+    public boolean prefetchLinks = false;
+    public int prefetchMaxPages = 2;
+    public long prefetchByteBudget = 150 * 1024;
+    
+    /**
+     * Generate a service worker which serves every compiled file from
+     * the cache and updates it in the background when its hash changes.
+     */
+    public boolean serviceWorker = false;
+    public String serviceWorkerFile = "sw.js";
+    public String precacheManifestFile = "precache-manifest.json";
+    
+    /**
+     * Write a snapshot with the content hash of every compiled file to 
+     * snapshotFile, relative to the project root. The diff command compares 
+     * it with an earlier snapshot to find the outputs which must be uploaded.
+     */
+    public boolean snapshot = false;
+    public String snapshotFile = "app.snapshot";
+    
+    /**
+     * Add a precompressed gzip sibling for every text file when compiling
+     * to an archive, for example index.html.gz next to index.html. 
+     */
+    public boolean archivePrecompress = false;
     
+    /**
+     * The payload budgets for the compiled pages. The build fails when a
+     * page exceeds one of the budgets it matches. Budgets are configured as:
+     * 
+     *      budget.<name>.pages=<glob>
+     *      budget.<name>.requests=<count>
+     *      budget.<name>.bytes=<raw bytes>
+     *      budget.<name>.gzipbytes=<gzipped bytes>
+     *      budget.<name>.bundlebytes=<raw bytes per script or style>
+     */
+    public List<PageBudget> budgets = new ArrayList<>();
+    
+    /**
+     * Combine the small PNG background images of the styles in sprite 
+     * sheets. Only images of at most spriteMaxSize pixels wide and high
+     * which do not match one of the spriteExclude glob patterns are combined.
+     */
+    public boolean cssSprites = false;
+    public int spriteMaxSize = 64;
+    public List<String> spriteExclude = new ArrayList<>();
+    
+    /**
+     * Embed the images and fonts referenced by the styles as data URI when
+     * they are at most inlineAssetMaxBytes bytes large, 0 disables embedding.
+     */
+    public long inlineAssetMaxBytes = 0;
+    
+    /**
+     * Combine the SVG icons in a single sprite of symbols. Image tags 
+     * referencing an SVG image which matches one of the svgSpriteInclude glob
+     * patterns and inline copies of these icons are replaced by a reference 
+     * to the sprite, as are inline SVG images which occur more than once. 
+     */
+    public boolean svgSprite = false;
+    public String svgSpriteFile = "icons.svg";
+    public List<String> svgSpriteInclude = new ArrayList<>(Arrays.asList("*.svg"));
+    
+    /**
+     * Recompress the images when copying them to the app. PNG images are
+     * recompressed losslessly, JPEG images are re-encoded at jpegQuality
+     * (0 to 100) only when this saves at least jpegMinSaving percent.
+     */
+    public boolean optimizeImages = false;
+    public int jpegQuality = 80;
+    public int jpegMinSaving = 10;
+    
+    /**
+     * Generate downscaled variants of the PNG and JPEG images used in the
+     * pages at every width in responsiveWidths smaller than the image and
+     * add them to the image tags with srcset. The sizes attribute tells the
+     * browser how wide the image is displayed. 
+     */
+    public boolean responsiveImages = false;
+    public List<Integer> responsiveWidths = new ArrayList<>(Arrays.asList(480, 960, 1600));
+    public String responsiveSizes = "100vw";
+    
+    /**
+     * Add the intrinsic dimensions to every image tag and load the images
+     * below the fold lazily. The first lazyImagesEagerCount images of a page
+     * and the images matching one of the lazyImagesExclude glob patterns,
+     * for example hero images, keep loading eagerly. 
+     */
+    public boolean lazyImages = false;
+    public int lazyImagesEagerCount = 1;
+    public List<String> lazyImagesExclude = new ArrayList<>();
+    
+    /**
+     * Load the configuration of a project. The project configuration file
+     * is optional, the defaults are used when it does not exist.
+     * @param filepath the project root directory.
+     * @return the project configuration or null when the file could not be read.
+     */
+    public static Config load(String filepath) {
+        Config config = new Config();
+        
+        Path file = Paths.get(filepath + PROJECT_CONFIG_FILE);
+        if(!Files.exists(file)) {
+            return config;
+        }
+        
+        Properties props = new Properties();
+        try(InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not read project configuration '" + file + "':");
+            ex.printStackTrace(System.err);
+            return null;
+        }
+        
+        config.uriFirstSlash = props.getProperty("uri.firstslash", config.uriFirstSlash);
+        config.localesAsGlobalJs = getBoolean(props, "locales.globaljs", config.localesAsGlobalJs);
+        config.localeBundles = getBoolean(props, "locales.bundles", config.localeBundles);
+        config.defaultLocale = props.getProperty("locales.default", config.defaultLocale);
+        config.localeTreeShaking = getBoolean(props, "locales.treeshake", config.localeTreeShaking);
+        config.localeFunction = props.getProperty("locales.function", config.localeFunction).trim();
+        config.localeKeyPattern = props.getProperty("locales.keypattern", localeKeyPatternFor(config.localeFunction));
+        config.localeDynamicPattern = props.getProperty("locales.dynamicpattern", localeDynamicPatternFor(config.localeFunction));
+        config.deferScripts = getBoolean(props, "scripts.defer", config.deferScripts);
+        config.styleCompressor = getCompressor(props, "styles.compressor", config.styleCompressor);
+        String htmlProfile = props.getProperty("html.profile");
+        if(htmlProfile != null && HtmlProfile.forName(htmlProfile) == null) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Ignoring unknown HTML profile '%s' for 'html.profile'", htmlProfile);
+        } else if(htmlProfile != null) {
+            config.htmlProfile = htmlProfile.trim().toLowerCase(Locale.ROOT);
+        }
+        config.scriptCompressor = getCompressor(props, "scripts.compressor", config.scriptCompressor);
+        config.compressBudget = getLong(props, "compress.budget", config.compressBudget);
+        config.streaming = getBoolean(props, "streaming.enabled", config.streaming);
+        config.streamingBufferSize = (int) Math.max(1024, getLong(props, "streaming.buffer", config.streamingBufferSize));
+        config.streamingMaxHeap = getLong(props, "streaming.maxheap", config.streamingMaxHeap);
+        config.prefetchLinks = getBoolean(props, "prefetch.enabled", config.prefetchLinks);
+        config.prefetchMaxPages = (int) getLong(props, "prefetch.maxpages", config.prefetchMaxPages);
+        config.prefetchByteBudget = getLong(props, "prefetch.budget", config.prefetchByteBudget);
+        config.serviceWorker = getBoolean(props, "serviceworker.enabled", config.serviceWorker);
+        config.cssSprites = getBoolean(props, "styles.sprites", config.cssSprites);
+        config.spriteMaxSize = (int) getLong(props, "styles.sprites.maxsize", config.spriteMaxSize);
+        config.spriteExclude = getList(props, "styles.sprites.exclude", config.spriteExclude);
+        config.inlineAssetMaxBytes = getLong(props, "styles.inline.maxbytes", config.inlineAssetMaxBytes);
+        config.svgSprite = getBoolean(props, "images.svgsprite", config.svgSprite);
+        config.svgSpriteInclude = getList(props, "images.svgsprite.include", config.svgSpriteInclude);
+        config.optimizeImages = getBoolean(props, "images.optimize", config.optimizeImages);
+        config.jpegQuality = (int) getLong(props, "images.jpeg.quality", config.jpegQuality);
+        config.jpegMinSaving = (int) getLong(props, "images.jpeg.minsaving", config.jpegMinSaving);
+        config.responsiveImages = getBoolean(props, "images.responsive", config.responsiveImages);
+        config.responsiveSizes = props.getProperty("images.responsive.sizes", config.responsiveSizes);
+        if(props.getProperty("images.responsive.widths") != null) {
+            config.responsiveWidths = new ArrayList<>();
+            for(String width : getList(props, "images.responsive.widths", new ArrayList<String>())) {
+                try {
+                    config.responsiveWidths.add(Integer.parseInt(width));
+                } catch (NumberFormatException ex) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Ignoring invalid width '%s' for 'images.responsive.widths'", width);
+                }
+            }
+        }
+        config.snapshot = getBoolean(props, "snapshot.enabled", config.snapshot);
+        config.snapshotFile = props.getProperty("snapshot.file", config.snapshotFile);
+        config.archivePrecompress = getBoolean(props, "archive.precompress", config.archivePrecompress);
+        config.lazyImages = getBoolean(props, "images.lazy", config.lazyImages);
+        config.lazyImagesEagerCount = (int) getLong(props, "images.lazy.eager", config.lazyImagesEagerCount);
+        config.lazyImagesExclude = getList(props, "images.lazy.exclude", config.lazyImagesExclude);
+        
+        /* Every budget is identified by its pages key */
+        for(String key : props.stringPropertyNames()) {
+            if(key.startsWith("budget.") && key.endsWith(".pages")) {
+                String prefix = key.substring(0, key.length() - "pages".length());
+                PageBudget budget = new PageBudget(prefix.substring("budget.".length(), prefix.length() - 1), props.getProperty(key).trim());
+                budget.setMaxRequests(getLong(props, prefix + "requests", -1));
+                budget.setMaxBytes(getLong(props, prefix + "bytes", -1));
+                budget.setMaxGzipBytes(getLong(props, prefix + "gzipbytes", -1));
+                budget.setMaxBundleBytes(getLong(props, prefix + "bundlebytes", -1));
+                config.budgets.add(budget);
+            }
+        }
+        
+        return config;
+    }
+    
+    /**
+     * Apply a build mode on top of the project configuration. The preview
+     * mode uses the fast compressors, for builds which should be close to
+     * the production size in a fraction of the time. The build mode also 
+     * picks the HTML profile when the project does not set one.
+     * @param mode the build mode given on the command line.
+     */
+    public void applyMode(String mode) {
+        if(PREVIEW_MODE.equals(mode)) {
+            scriptCompressor = FAST_COMPRESSOR;
+            styleCompressor = FAST_COMPRESSOR;
+        }
+        if(htmlProfile == null) {
+            htmlProfile = DEV_MODE.equals(mode) ? "dev" : "safe";
+        }
+    }
+    
+    /**
+     * Build the pattern matching the locale keys of data-i18n attributes and
+     * of translate helper calls with a string literal.
+     * @param function the translate helper, for example 'i18n.t'.
+     * @return the locale key pattern.
+     */
+    public static String localeKeyPatternFor(String function) {
+        return "data-i18n\\s*=\\s*[\"']([^\"']+)[\"']|(?<![\\w$])" + Pattern.quote(function) + "\\(\\s*[\"']([^\"']+)[\"']";
+    }
+    
+    /**
+     * Build the pattern matching the translate helper calls without a string
+     * literal, their key can only be known at runtime.
+     * @param function the translate helper, for example 'i18n.t'.
+     * @return the dynamic locale key pattern.
+     */
+    public static String localeDynamicPatternFor(String function) {
+        return "(?<![\\w$])" + Pattern.quote(function) + "\\(\\s*[^\"'\\s)]";
+    }
+    
+    /**
+     * Read a compressor name property, an unknown compressor is reported 
+     * and ignored.
+     * @param props the properties to read from.
+     * @param key the property key.
+     * @param def the value to use when the key is not present.
+     * @return the property value.
+     */
+    private static String getCompressor(Properties props, String key, String def) {
+        String value = props.getProperty(key);
+        if(value == null) {
+            return def;
+        }
+        
+        value = value.trim();
+        if(!value.equals(YUI_COMPRESSOR) && !value.equals(FAST_COMPRESSOR)) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Ignoring unknown compressor '%s' for '%s'", value, key);
+            return def;
+        }
+        return value;
+    }
+    
+    /**
+     * Read a boolean property.
+     * @param props the properties to read from.
+     * @param key the property key.
+     * @param def the value to use when the key is not present.
+     * @return the property value.
+     */
+    private static boolean getBoolean(Properties props, String key, boolean def) {
+        String value = props.getProperty(key);
+        return value == null ? def : Boolean.parseBoolean(value.trim());
+    }
+    
+    /**
+     * Read a comma separated list property.
+     * @param props the properties to read from.
+     * @param key the property key.
+     * @param def the value to use when the key is not present.
+     * @return the property value.
+     */
+    private static List<String> getList(Properties props, String key, List<String> def) {
+        String value = props.getProperty(key);
+        if(value == null) {
+            return def;
+        }
+        
+        List<String> list = new ArrayList<>();
+        for(String item : value.split(",")) {
+            if(!item.trim().isEmpty()) {
+                list.add(item.trim());
+            }
+        }
+        return list;
+    }
+    
+    /**
+     * Read a numeric property, an invalid number is reported and ignored.
+     * @param props the properties to read from.
+     * @param key the property key.
+     * @param def the value to use when the key is not present.
+     * @return the property value.
+     */
+    private static long getLong(Properties props, String key, long def) {
+        String value = props.getProperty(key);
+        if(value == null) {
+            return def;
+        }
+        
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Ignoring invalid number '%s' for '%s'", value, key);
+            return def;
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   PageBudget.java
+ * Created on October 19, 2026, 12:10 PM
+ */
+package dpt.statapp.compiler.config;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+
+/**
+ * A payload budget for the pages matching a glob pattern. Every
+ * limit is optional, a negative limit is not checked. 
+ * @author Daan Pape
+ */
+public class PageBudget {
+    /* The budget name as used in the configuration file */
+    protected String name;
+    
+    /* The glob pattern for the page file names */
+    protected String pages;
+    protected PathMatcher matcher;
+    
+    /* The maximum number of requests for the page, its scripts and its styles */
+    protected long maxRequests = -1;
+    
+    /* The maximum total raw and gzipped size of the page, its scripts and its styles */
+    protected long maxBytes = -1;
+    protected long maxGzipBytes = -1;
+    
+    /* The maximum raw size of a single script or style bundle */
+    protected long maxBundleBytes = -1;
+    
+    /**
+     * Construct a new PageBudget. 
+     * @param name the name of the budget. 
+     * @param pages the glob pattern for the page file names, for example 'index.html' or '*.html'.
+     */
+    public PageBudget(String name, String pages) {
+        this.name = name;
+        this.pages = pages;
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pages);
+    }
+    
+    /**
+     * Check if a page falls under this budget. 
+     * @param page the compiled page. 
+     * @return true if the page file name matches the glob pattern.
+     */
+    public boolean matches(Path page) {
+        return matcher.matches(page.getFileName());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPages() {
+        return pages;
+    }
+
+    public long getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(long maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxGzipBytes() {
+        return maxGzipBytes;
+    }
+
+    public void setMaxGzipBytes(long maxGzipBytes) {
+        this.maxGzipBytes = maxGzipBytes;
+    }
+
+    public long getMaxBundleBytes() {
+        return maxBundleBytes;
+    }
+
+    public void setMaxBundleBytes(long maxBundleBytes) {
+        this.maxBundleBytes = maxBundleBytes;
+    }
+}
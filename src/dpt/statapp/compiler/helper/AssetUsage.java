@@ -0,0 +1,145 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   AssetUsage.java
+ * Created on October 19, 2026, 05:05 PM
+ */
+package dpt.statapp.compiler.helper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records which pages use which assets. Pages and assets are numbered in
+ * the order they are added and every asset has a bit set with a bit per 
+ * page, so the queries over all pages handle 64 pages per word and the
+ * usage of a page costs a bit per asset instead of a set of names. 
+ * @author Daan Pape
+ */
+public class AssetUsage {
+    
+    /* The id of every asset, the pages using an asset are indexed by its id */
+    private final Map<String, Integer> assetIds = new HashMap<>();
+    private final List<BitSet> pagesByAsset = new ArrayList<>();
+    
+    /* The number of pages added */
+    private int pageCount = 0;
+    
+    /**
+     * Add a page which does not use any asset yet. 
+     * @return the id of the page.
+     */
+    public int addPage() {
+        return pageCount++;
+    }
+    
+    /**
+     * Get the number of pages added.
+     * @return the number of pages.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    /**
+     * Record that a page uses an asset. 
+     * @param page the id of the page.
+     * @param asset the name of the asset.
+     */
+    public void use(int page, String asset) {
+        Integer id = assetIds.get(asset);
+        if(id == null) {
+            id = pagesByAsset.size();
+            assetIds.put(asset, id);
+            pagesByAsset.add(new BitSet(pageCount));
+        }
+        pagesByAsset.get(id).set(page);
+    }
+    
+    /**
+     * Get the number of pages using an asset.
+     * @param asset the name of the asset.
+     * @return the number of pages.
+     */
+    public int countPages(String asset) {
+        Integer id = assetIds.get(asset);
+        return id == null ? 0 : pagesByAsset.get(id).cardinality();
+    }
+    
+    /**
+     * Get the number of pages using both assets.
+     * @param asset the name of the first asset.
+     * @param other the name of the second asset.
+     * @return the number of pages.
+     */
+    public int countSharedPages(String asset, String other) {
+        Integer id = assetIds.get(asset);
+        Integer otherId = assetIds.get(other);
+        if(id == null || otherId == null) {
+            return 0;
+        }
+        
+        BitSet shared = (BitSet) pagesByAsset.get(id).clone();
+        shared.and(pagesByAsset.get(otherId));
+        return shared.cardinality();
+    }
+    
+    /**
+     * Check if an asset is used by every page.
+     * @param asset the name of the asset.
+     * @return true when every page uses the asset.
+     */
+    public boolean isGlobal(String asset) {
+        return countPages(asset) == pageCount;
+    }
+    
+    /**
+     * Move the usage of an asset to another asset, every page using the
+     * asset then uses the other asset. 
+     * @param asset the name of the asset which is no longer used.
+     * @param into the name of the asset used instead.
+     */
+    public void merge(String asset, String into) {
+        Integer id = assetIds.remove(asset);
+        if(id == null) {
+            return;
+        }
+        
+        BitSet pages = pagesByAsset.get(id);
+        Integer intoId = assetIds.get(into);
+        if(intoId == null) {
+            assetIds.put(into, id);
+        } else {
+            pagesByAsset.get(intoId).or(pages);
+            pages.clear();
+        }
+    }
+}
@@ -40,18 +40,23 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 
 /**
- * Java NIO visitor class to copy an entire directory.
+ * Java NIO visitor class to copy an entire directory. Files an earlier 
+ * stage of the same compile already wrote, like optimized images, are
+ * kept.
  * @author Daan Pape
  */
 public class DirCopyVisitor extends SimpleFileVisitor<Path>{
+    protected OutputSink output;
     protected Path target;
     protected Path source;
     
     /**
      * Construct a new DirCopyVisitor
+     * @param output the destination of the copied files.
      * @param target the target directory path to copy to. 
      */
-    public DirCopyVisitor(Path target) {
+    public DirCopyVisitor(OutputSink output, Path target) {
+        this.output = output;
         this.target = target;
         this.source = null;
     }
@@ -60,7 +65,7 @@ public class DirCopyVisitor extends SimpleFileVisitor<Path>{
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
         if(source == null) {
             source = dir;
-        } else {
+        } else if(!output.isArchive()) {
             Files.createDirectories(target.resolve(source.relativize(dir)));
         }
         return FileVisitResult.CONTINUE;
@@ -68,8 +73,8 @@ public class DirCopyVisitor extends SimpleFileVisitor<Path>{
     
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
-        if(!Files.exists(target.resolve(source.relativize(file)))) {
-            Files.copy(file, target.resolve(source.relativize(file)));
+        if(!output.exists(target.resolve(source.relativize(file)))) {
+            output.copy(file, target.resolve(source.relativize(file)));
         }
         return FileVisitResult.CONTINUE;
     }
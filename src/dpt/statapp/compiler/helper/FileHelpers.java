@@ -35,13 +35,29 @@ import dpt.statapp.compiler.config.Config;
 import dpt.statapp.compiler.output.ErrorFormatter;
 import dpt.statapp.compiler.output.ErrorType;
 import dpt.statapp.compiler.output.OutFormatter;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Static helper functions concerning files and directories.
@@ -119,6 +135,57 @@ public class FileHelpers {
         return true;
     }
     
+    /**
+     * Delete a directory with all its subdirectories and files. 
+     * @param path the path to the directory you want to delete. 
+     * @return true on success, false on error. 
+     */
+    public static boolean deleteDirectoryTree(String path) {
+        Path dir = Paths.get(path);
+        if(!Files.exists(dir)) {
+            return true;
+        }
+        
+        try(Stream<Path> walk = Files.walk(dir)) {
+            /* Children come before their parent in reverse order */
+            for(Path file : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not delete directory "  + path);
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Delete everything inside a directory, the directory itself is kept. 
+     * @param path the path to the directory you want to clear. 
+     * @return true on success, false on error. 
+     */
+    public static boolean clearDirectory(String path) {
+        Path dir = Paths.get(path);
+        if(!Files.isDirectory(dir)) {
+            return true;
+        }
+        
+        try(DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+            for(Path child : children) {
+                if(!deleteDirectoryTree(child.toString())) {
+                    return false;
+                }
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not clear directory "  + path);
+            ex.printStackTrace(System.err);
+            return false;
+        }
+        
+        return true;
+    }
+    
     /**
      * Read the contents of a file into a string object. 
      * @param input the inputFile to read. 
@@ -135,6 +202,123 @@ public class FileHelpers {
         }
     }
     
+    /**
+     * Open a file for writing through a buffer of a fixed size. The file
+     * is written in the platform charset, in which fileToString reads it. 
+     * @param output the file to write, it is replaced when it exists.
+     * @param bufferSize the buffer size in characters.
+     * @return the writer, which must be closed by the caller.
+     * @throws IOException when the file could not be opened.
+     */
+    public static Writer openWriter(Path output, int bufferSize) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output), Charset.defaultCharset()), bufferSize);
+    }
+    
+    /**
+     * Append the contents of a file to a writer through a buffer of a fixed
+     * size, so the file is never held in memory as a whole. 
+     * @param input the file to append.
+     * @param out the writer to append to.
+     * @param bufferSize the buffer size in characters.
+     * @throws IOException when the file could not be read or written.
+     */
+    public static void appendFile(Path input, Writer out, int bufferSize) throws IOException {
+        char[] buffer = new char[bufferSize];
+        try(Reader in = new InputStreamReader(Files.newInputStream(input), Charset.defaultCharset())) {
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+    
+    /**
+     * Calculate the SHA-256 content hash of some data. 
+     * @param data the data to hash. 
+     * @return the hash as a lowercase hexadecimal string.
+     */
+    public static String contentHash(byte[] data) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException ex) {
+            /* Every Java platform is required to support SHA-256 */
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    /**
+     * Format a digest as hexadecimal string. 
+     * @param digest the digest bytes.
+     * @return the lowercase hexadecimal string.
+     */
+    public static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder();
+        for(byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    
+    /**
+     * Calculate the SHA-256 content hash of a file. 
+     * @param file the file to hash. 
+     * @return the hash as a lowercase hexadecimal string.
+     * @throws IOException when the file could not be read.
+     */
+    public static String contentHash(Path file) throws IOException {
+        return contentHash(Files.readAllBytes(file));
+    }
+    
+    /**
+     * Find the files with identical contents. Of every group of identical
+     * files the one which comes first in the list is kept. 
+     * @param files the files to compare, the preferred files first.
+     * @return maps the name of every duplicate file to the name of the file it duplicates.
+     * @throws IOException when a file could not be read.
+     */
+    public static Map<String, String> findDuplicates(List<Path> files) throws IOException {
+        Map<String, String> duplicates = new LinkedHashMap<>();
+        Map<String, String> namesByHash = new HashMap<>();
+        
+        for(Path file : files) {
+            String name = file.getFileName().toString();
+            String original = namesByHash.putIfAbsent(contentHash(file), name);
+            if(original != null) {
+                duplicates.put(name, original);
+            }
+        }
+        return duplicates;
+    }
+    
+    /**
+     * Calculate the size of some data after gzip compression, as it
+     * would be transferred by a webserver.
+     * @param data the data to compress. 
+     * @return the compressed size in bytes.
+     */
+    public static long gzipSize(byte[] data) {
+        final long[] size = new long[1];
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                size[0]++;
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) {
+                size[0] += len;
+            }
+        };
+        
+        try(GZIPOutputStream gzip = new GZIPOutputStream(counter)) {
+            gzip.write(data);
+        } catch (IOException ex) {
+            /* The counting stream never throws */
+            throw new IllegalStateException(ex);
+        }
+        return size[0];
+    }
+    
     /**
      * Find a file by it's filename. 
      * @param filename the filename.extension to search.
@@ -0,0 +1,259 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   HtmlHelpers.java
+ * Created on October 19, 2026, 11:02 AM
+ */
+package dpt.statapp.compiler.helper;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static helper functions to inspect and rewrite compiled HTML pages.
+ * @author Daan Pape
+ */
+public class HtmlHelpers {
+    
+    /* Matches a single attribute in a tag */
+    private static final String ATTRIBUTE_PATTERN = "\\s%s\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))";
+    
+    /**
+     * List all HTML pages in a directory. 
+     * @param dir the directory to search in. 
+     * @return the list of pages on success or null on error.
+     */
+    public static List<Path> listPages(Path dir) {
+        List<Path> pages = new ArrayList<>();
+        
+        try(DirectoryStream<Path> pageStream = Files.newDirectoryStream(dir, "*.html")) {
+            for(Path page : pageStream) {
+                pages.add(page);
+            }
+        } catch (IOException ex) {
+            ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not list all HTML pages: ");
+            ex.printStackTrace(System.err);
+            return null;
+        }
+        
+        return pages;
+    }
+    
+    /**
+     * Find all opening tags with the given name. 
+     * @param html the HTML source to search in. 
+     * @param tagName the name of the tag, for example 'img'.
+     * @return a matcher over all tags with this name. 
+     */
+    public static Matcher findTags(String html, String tagName) {
+        return Pattern.compile("<" + tagName + "\\b[^>]*>", Pattern.CASE_INSENSITIVE).matcher(html);
+    }
+    
+    /**
+     * Get the value of an attribute in a tag. 
+     * @param tag the complete opening tag. 
+     * @param name the name of the attribute.
+     * @return the attribute value or null if it is not present. 
+     */
+    public static String getAttribute(String tag, String name) {
+        Matcher m = Pattern.compile(String.format(ATTRIBUTE_PATTERN, Pattern.quote(name)), Pattern.CASE_INSENSITIVE).matcher(tag);
+        if(!m.find()) {
+            return null;
+        }
+        
+        for(int i = 1; i <= 3; ++i) {
+            if(m.group(i) != null) {
+                return m.group(i);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Escape an attribute value read from a tag to place it in double quotes.
+     * Character references which are already in the value are kept.
+     * @param value the attribute value.
+     * @return the escaped value.
+     */
+    public static String escapeAttribute(String value) {
+        return value.replaceAll("&(?!#[0-9]+;|#[xX][0-9a-fA-F]+;|[A-Za-z][A-Za-z0-9]*;)", "&amp;")
+                .replace("\"", "&quot;")
+                .replace("<", "&lt;");
+    }
+    
+    /**
+     * Check if a tag has an attribute. 
+     * @param tag the complete opening tag. 
+     * @param name the name of the attribute.
+     * @return true if the attribute is present.
+     */
+    public static boolean hasAttribute(String tag, String name) {
+        return Pattern.compile("\\s" + Pattern.quote(name) + "(\\s|=|/?>)", Pattern.CASE_INSENSITIVE).matcher(tag).find();
+    }
+    
+    /**
+     * Add attributes to an opening tag, right before the closing bracket. 
+     * @param tag the complete opening tag. 
+     * @param attributes the attributes to add, for example 'loading="lazy"'.
+     * @return the new tag. 
+     */
+    public static String addAttributes(String tag, String attributes) {
+        int end = tag.endsWith("/>") ? tag.length() - 2 : tag.length() - 1;
+        return tag.substring(0, end) + " " + attributes + tag.substring(end);
+    }
+    
+    /**
+     * List the values of an attribute for all tags with the given name.
+     * @param html the HTML source to search in. 
+     * @param tagName the name of the tag. 
+     * @param attribute the name of the attribute. 
+     * @return all attribute values in document order. 
+     */
+    public static List<String> getTagAttributes(String html, String tagName, String attribute) {
+        List<String> values = new ArrayList<>();
+        Matcher m = findTags(html, tagName);
+        
+        while(m.find()) {
+            String value = getAttribute(m.group(), attribute);
+            if(value != null) {
+                values.add(value);
+            }
+        }
+        
+        return values;
+    }
+    
+    /**
+     * List the script and stylesheet files a compiled page includes. For
+     * a global script selected per locale the default bundle is listed. 
+     * @param html the compiled page.
+     * @return the src and href values in document order.
+     */
+    public static List<String> getAssetReferences(String html) {
+        List<String> refs = new ArrayList<>();
+        refs.addAll(getTagAttributes(html, "script", "src"));
+        refs.addAll(getTagAttributes(html, "script", "data-locale-bundle"));
+        
+        Matcher m = findTags(html, "link");
+        while(m.find()) {
+            String rel = getAttribute(m.group(), "rel");
+            String href = getAttribute(m.group(), "href");
+            if(rel != null && href != null && rel.equalsIgnoreCase("stylesheet")) {
+                refs.add(href);
+            }
+        }
+        
+        return refs;
+    }
+    
+    /**
+     * Resolve a reference in a compiled page to a file in the output directory. 
+     * External references, anchors and data URIs can not be resolved.
+     * @param outputDir the output directory of the app. 
+     * @param page the page containing the reference. 
+     * @param ref the reference, for example 'assets/js/globalscript.js'.
+     * @return the referenced path or null if it is not an output file. 
+     */
+    public static Path resolveReference(Path outputDir, Path page, String ref) {
+        if(ref.isEmpty() || ref.startsWith("#") || ref.startsWith("//") || ref.matches("^[a-zA-Z][a-zA-Z0-9+.-]*:.*")) {
+            return null;
+        }
+        
+        /* Strip query and fragment */
+        int end = ref.length();
+        for(char c : new char[] {'?', '#'}) {
+            int index = ref.indexOf(c);
+            if(index != -1 && index < end) {
+                end = index;
+            }
+        }
+        ref = ref.substring(0, end);
+        if(ref.isEmpty()) {
+            return null;
+        }
+        
+        Path resolved;
+        if(ref.startsWith("/")) {
+            resolved = outputDir.resolve(ref.substring(1)).normalize();
+        } else {
+            resolved = page.getParent().resolve(ref).normalize();
+        }
+        
+        return resolved.startsWith(outputDir.normalize()) ? resolved : null;
+    }
+    
+    /**
+     * Create a reference to an output file as used in the compiled pages. 
+     * @param config the project configuration. 
+     * @param outputDir the output directory of the app. 
+     * @param file the file to reference. 
+     * @return the reference. 
+     */
+    public static String toReference(Config config, Path outputDir, Path file) {
+        return config.uriFirstSlash + outputDir.normalize().relativize(file.normalize()).toString().replace('\\', '/');
+    }
+    
+    /**
+     * Insert a snippet at the end of the head element. When the page has no
+     * head the snippet is placed at the start of the page.
+     * @param html the page to insert in. 
+     * @param snippet the HTML snippet to insert. 
+     * @return the new page. 
+     */
+    public static String insertInHead(String html, String snippet) {
+        int index = html.toLowerCase().indexOf("</head>");
+        if(index == -1) {
+            return snippet + html;
+        }
+        return html.substring(0, index) + snippet + html.substring(index);
+    }
+    
+    /**
+     * Insert a snippet at the end of the body element. When the page has no
+     * closing body tag the snippet is appended to the page.
+     * @param html the page to insert in. 
+     * @param snippet the HTML snippet to insert. 
+     * @return the new page. 
+     */
+    public static String insertInBody(String html, String snippet) {
+        int index = html.toLowerCase().lastIndexOf("</body>");
+        if(index == -1) {
+            return html + snippet;
+        }
+        return html.substring(0, index) + snippet + html.substring(index);
+    }
+}
@@ -0,0 +1,145 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ImageDimensionCache.java
+ * Created on October 19, 2026, 12:48 PM
+ */
+package dpt.statapp.compiler.helper;
+
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Properties;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Persistent cache of image dimensions keyed by the content hash of 
+ * the image. Only the image header is read on a cache miss. 
+ * @author Daan Pape
+ */
+public class ImageDimensionCache {
+    /* The file the cache is stored in */
+    protected Path cacheFile;
+    
+    /* Maps the content hash to 'width x height' */
+    protected Properties dimensions = new Properties();
+    
+    /* True when the cache changed since it was loaded */
+    protected boolean dirty = false;
+    
+    /**
+     * Construct a new ImageDimensionCache and load the stored entries. 
+     * @param cacheFile the file the cache is stored in. 
+     */
+    public ImageDimensionCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        
+        if(Files.exists(cacheFile)) {
+            try(InputStream in = Files.newInputStream(cacheFile)) {
+                dimensions.load(in);
+            } catch (IOException ex) {
+                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Ignoring unreadable image dimension cache '%s'", cacheFile.toString());
+            }
+        }
+    }
+    
+    /**
+     * Get the dimensions of an image. 
+     * @param image the image file. 
+     * @return an array with the width and the height or null when the image format is not supported.
+     * @throws IOException when the image could not be read. 
+     */
+    public synchronized int[] getDimensions(Path image) throws IOException {
+        byte[] data = Files.readAllBytes(image);
+        String hash = FileHelpers.contentHash(data);
+        
+        String cached = dimensions.getProperty(hash);
+        if(cached != null) {
+            if(cached.isEmpty()) {
+                return null;
+            }
+            String[] parts = cached.split("x");
+            return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        }
+        
+        int[] result = readDimensions(data);
+        dimensions.setProperty(hash, result == null ? "" : result[0] + "x" + result[1]);
+        dirty = true;
+        return result;
+    }
+    
+    /**
+     * Read the dimensions from the image header. 
+     * @param data the image contents. 
+     * @return an array with the width and the height or null when the image format is not supported.
+     * @throws IOException when the image could not be decoded.
+     */
+    private static int[] readDimensions(byte[] data) throws IOException {
+        try(ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if(!readers.hasNext()) {
+                return null;
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[] {reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Store the cache when it changed. 
+     */
+    public synchronized void save() {
+        if(!dirty) {
+            return;
+        }
+        
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try(OutputStream out = Files.newOutputStream(cacheFile)) {
+                dimensions.store(out, "Image dimensions by content hash");
+            }
+            dirty = false;
+        } catch (IOException ex) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not store the image dimension cache '%s'", cacheFile.toString());
+        }
+    }
+}
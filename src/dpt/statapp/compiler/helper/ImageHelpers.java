@@ -0,0 +1,393 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   ImageHelpers.java
+ * Created on October 19, 2026, 10:05 AM
+ */
+package dpt.statapp.compiler.helper;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Static helper functions to recompress images with the JDK only. 
+ * @author Daan Pape
+ */
+public class ImageHelpers {
+    
+    /* The PNG file signature */
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    
+    /* PNG chunks which only hold metadata and never change how the image looks */
+    private static final Set<String> PNG_METADATA_CHUNKS = new HashSet<>(Arrays.asList("tEXt", "zTXt", "iTXt", "tIME", "eXIf"));
+    
+    /**
+     * Check if data is a PNG image.
+     * @param data the file contents.
+     * @return true if the data starts with the PNG signature.
+     */
+    public static boolean isPng(byte[] data) {
+        return data.length > PNG_SIGNATURE.length && Arrays.equals(Arrays.copyOf(data, PNG_SIGNATURE.length), PNG_SIGNATURE);
+    }
+    
+    /**
+     * Check if data is a JPEG image.
+     * @param data the file contents.
+     * @return true if the data starts with the JPEG start of image marker.
+     */
+    public static boolean isJpeg(byte[] data) {
+        return data.length > 2 && (data[0] & 0xFF) == 0xFF && (data[1] & 0xFF) == 0xD8;
+    }
+    
+    /**
+     * Losslessly recompress a PNG image. The metadata chunks are removed and
+     * all image data is deflated again with the best compression in a single
+     * IDAT chunk. The pixels are not touched so the result decodes to the
+     * exact same image. 
+     * @param data the PNG file contents.
+     * @return the optimized PNG or null when the file is not a valid PNG.
+     */
+    public static byte[] optimizePng(byte[] data) {
+        if(!isPng(data)) {
+            return null;
+        }
+        
+        ByteBuffer in = ByteBuffer.wrap(data);
+        in.position(PNG_SIGNATURE.length);
+        ByteArrayOutputStream idat = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        out.write(PNG_SIGNATURE, 0, PNG_SIGNATURE.length);
+        
+        try {
+            boolean idatWritten = false;
+            while(in.remaining() >= 12) {
+                int length = in.getInt();
+                if(length < 0 || length > in.remaining() - 8) {
+                    return null;
+                }
+                byte[] typeBytes = new byte[4];
+                in.get(typeBytes);
+                String type = new String(typeBytes, StandardCharsets.US_ASCII);
+                byte[] chunk = new byte[length];
+                in.get(chunk);
+                in.getInt();
+                
+                if(type.equals("IDAT")) {
+                    idat.write(chunk);
+                    continue;
+                }
+                
+                /* The IDAT chunks are consecutive, write them all at once */
+                if(idat.size() > 0 && !idatWritten) {
+                    byte[] deflated = deflate(inflate(idat.toByteArray()));
+                    writeChunk(out, "IDAT", deflated);
+                    idatWritten = true;
+                }
+                
+                if(PNG_METADATA_CHUNKS.contains(type)) {
+                    continue;
+                }
+                writeChunk(out, type, chunk);
+                
+                if(type.equals("IEND")) {
+                    return idatWritten ? out.toByteArray() : null;
+                }
+            }
+        } catch (IOException | DataFormatException ex) {
+            return null;
+        }
+        
+        /* No IEND chunk, not a complete PNG */
+        return null;
+    }
+    
+    /**
+     * Re-encode a JPEG image at the given quality. Images with an 
+     * orientation or a color profile are not re-encoded because the 
+     * JDK encoder would drop this information.
+     * @param data the JPEG file contents.
+     * @param quality the quality from 0 to 100.
+     * @return the re-encoded JPEG or null when it could not be re-encoded.
+     */
+    public static byte[] recompressJpeg(byte[] data, int quality) {
+        if(!isJpeg(data) || hasJpegColorOrOrientation(data)) {
+            return null;
+        }
+        
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+            if(image == null || image.getColorModel().hasAlpha()) {
+                return null;
+            }
+            return encode(image, false, quality);
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+    
+    /**
+     * Scale an image down to a width with high quality. The image is halved
+     * with bilinear interpolation until it is less than twice the target 
+     * size and then scaled to the target with bicubic interpolation, which 
+     * avoids the aliasing of a single large downscale. 
+     * @param image the image to scale. 
+     * @param width the target width, the height keeps the aspect ratio.
+     * @return the scaled image.
+     */
+    public static BufferedImage scale(BufferedImage image, int width) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            boolean last = currentWidth / 2 < width;
+            int nextWidth = last ? width : currentWidth / 2;
+            int nextHeight = last ? height : currentHeight / 2;
+            
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, last ? RenderingHints.VALUE_INTERPOLATION_BICUBIC : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            g.dispose();
+            
+            current = next;
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } while(currentWidth != width);
+        
+        return current;
+    }
+    
+    /**
+     * Encode an image as PNG or JPEG. PNG images are optimized losslessly. 
+     * @param image the image to encode.
+     * @param png true for PNG, false for JPEG.
+     * @param quality the JPEG quality from 0 to 100.
+     * @return the encoded image.
+     * @throws IOException when the image could not be encoded.
+     */
+    public static byte[] encode(BufferedImage image, boolean png, int quality) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if(png) {
+            ImageIO.write(image, "png", out);
+            byte[] optimized = optimizePng(out.toByteArray());
+            return optimized != null && optimized.length < out.size() ? optimized : out.toByteArray();
+        }
+        
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(Math.max(0, Math.min(100, quality)) / 100f);
+        try(ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Check if a JPEG has an embedded color profile or an Exif orientation
+     * other than the default. 
+     * @param data the JPEG file contents.
+     * @return true if the JPEG should not be re-encoded.
+     */
+    private static boolean hasJpegColorOrOrientation(byte[] data) {
+        int pos = 2;
+        while(pos + 4 <= data.length && (data[pos] & 0xFF) == 0xFF) {
+            int marker = data[pos + 1] & 0xFF;
+            
+            /* Start of scan, no more metadata segments */
+            if(marker == 0xDA) {
+                break;
+            }
+            int length = ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+            int start = pos + 4;
+            int end = Math.min(data.length, pos + 2 + length);
+            
+            if(marker == 0xE2 && startsWith(data, start, "ICC_PROFILE")) {
+                return true;
+            }
+            if(marker == 0xE1 && startsWith(data, start, "Exif\0\0") && exifOrientation(data, start + 6, end) > 1) {
+                return true;
+            }
+            pos += 2 + length;
+        }
+        return false;
+    }
+    
+    /**
+     * Read the orientation from the first IFD of an Exif segment.
+     * @param data the JPEG file contents.
+     * @param tiff the start of the TIFF header.
+     * @param end the end of the Exif segment.
+     * @return the orientation or 1 when it is not present.
+     */
+    private static int exifOrientation(byte[] data, int tiff, int end) {
+        if(tiff + 8 > end) {
+            return 1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, end);
+        buffer.order(data[tiff] == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        
+        int ifd = tiff + buffer.getInt(tiff + 4);
+        if(ifd < tiff || ifd + 2 > end) {
+            return 1;
+        }
+        int entries = buffer.getShort(ifd) & 0xFFFF;
+        for(int i = 0; i < entries; ++i) {
+            int entry = ifd + 2 + i * 12;
+            if(entry + 12 > end) {
+                break;
+            }
+            if((buffer.getShort(entry) & 0xFFFF) == 0x0112) {
+                return buffer.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return 1;
+    }
+    
+    /**
+     * Check if data contains an ASCII string at a position.
+     * @param data the data.
+     * @param pos the position.
+     * @param prefix the string.
+     * @return true if the string is present.
+     */
+    private static boolean startsWith(byte[] data, int pos, String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.US_ASCII);
+        if(pos + bytes.length > data.length) {
+            return false;
+        }
+        for(int i = 0; i < bytes.length; ++i) {
+            if(data[pos + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Write a PNG chunk with its checksum.
+     * @param out the stream to write to.
+     * @param type the chunk type.
+     * @param chunk the chunk data.
+     * @throws IOException when the chunk could not be written.
+     */
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] chunk) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(chunk);
+        
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(chunk.length);
+        dos.write(typeBytes);
+        dos.write(chunk);
+        dos.writeInt((int) crc.getValue());
+        dos.flush();
+    }
+    
+    /**
+     * Inflate a zlib stream.
+     * @param data the compressed data.
+     * @return the uncompressed data.
+     * @throws DataFormatException when the stream is invalid.
+     */
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] buffer = new byte[64 * 1024];
+        try {
+            while(!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated image data");
+                }
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Deflate data to a zlib stream with the best compression. Both the
+     * default and the filtered strategy are tried and the smallest is kept. 
+     * @param data the uncompressed data.
+     * @return the compressed data.
+     */
+    private static byte[] deflate(byte[] data) {
+        byte[] best = null;
+        for(int strategy : new int[] {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED}) {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            deflater.setStrategy(strategy);
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while(!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            deflater.end();
+            
+            if(best == null || out.size() < best.length) {
+                best = out.toByteArray();
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,276 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   LocaleHelpers.java
+ * Created on October 19, 2026, 09:40 AM
+ */
+package dpt.statapp.compiler.helper;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static helper functions to find the translation keys an application
+ * uses and to strip the unused keys from the locale files. 
+ * @author Daan Pape
+ */
+public class LocaleHelpers {
+    
+    /**
+     * Collect the translation keys referenced by the pages and the scripts. 
+     * A key is the first matching group of the key pattern. When a file 
+     * contains a reference which can not be determined statically, for 
+     * example a key built at runtime, no keys are returned. 
+     * @param files the pages and scripts to search in.
+     * @param config the project configuration.
+     * @return the set of keys or null when every key must be kept.
+     */
+    public static Set<String> collectKeys(Collection<Path> files, Config config) {
+        Pattern keyPattern;
+        Pattern dynamicPattern;
+        try {
+            keyPattern = Pattern.compile(config.localeKeyPattern);
+            dynamicPattern = config.localeDynamicPattern.isEmpty() ? null : Pattern.compile(config.localeDynamicPattern);
+        } catch (IllegalArgumentException ex) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Invalid locale key pattern, keeping all keys: %s", ex.getMessage());
+            return null;
+        }
+        
+        Set<String> keys = new HashSet<>();
+        for(Path file : files) {
+            String contents = FileHelpers.fileToString(file);
+            if(contents == null) {
+                return null;
+            }
+            
+            Matcher dynamic = dynamicPattern == null ? null : dynamicPattern.matcher(contents);
+            if(dynamic != null && dynamic.find()) {
+                int line = 1;
+                for(int i = 0; i < dynamic.start(); ++i) {
+                    if(contents.charAt(i) == '\n') {
+                        ++line;
+                    }
+                }
+                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "File '%s' line %d references locale keys dynamically with '%s', keeping all keys", file.getFileName().toString(), line, dynamic.group());
+                return null;
+            }
+            
+            Matcher matcher = keyPattern.matcher(contents);
+            while(matcher.find()) {
+                for(int group = 1; group <= matcher.groupCount(); ++group) {
+                    if(matcher.group(group) != null) {
+                        keys.add(matcher.group(group));
+                        break;
+                    }
+                }
+            }
+        }
+        
+        return keys;
+    }
+    
+    /**
+     * Remove the unused keys from a locale file. The locale file must contain
+     * a single object literal, for example 'var locale_en = {"key": "value"};'. 
+     * A key holding a nested object is kept when a used key starts with it. 
+     * @param name the name of the locale file, used for reporting.
+     * @param contents the contents of the locale file.
+     * @param keys the used keys or null to keep every key.
+     * @return the locale file with only the used keys or the original contents when it could not be parsed.
+     */
+    public static String shake(String name, String contents, Set<String> keys) {
+        if(keys == null) {
+            return contents;
+        }
+        
+        String shaken = subset(contents, keys);
+        if(shaken == null) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not parse locale '%s', keeping all keys", name);
+            return contents;
+        }
+        
+        OutFormatter.printfLn("Removed unused keys from locale '%s': %d to %d bytes", name, contents.length(), shaken.length());
+        return shaken;
+    }
+    
+    /**
+     * Copy the object literal of a locale file with only the used keys.
+     * @param contents the locale file contents.
+     * @param keys the used keys.
+     * @return the reduced locale file or null when it could not be parsed. 
+     */
+    private static String subset(String contents, Set<String> keys) {
+        int pos = contents.indexOf('{');
+        if(pos < 0) {
+            return null;
+        }
+        
+        StringBuilder out = new StringBuilder(contents.substring(0, pos + 1));
+        boolean first = true;
+        ++pos;
+        
+        while(true) {
+            pos = skipWhitespace(contents, pos);
+            if(pos >= contents.length()) {
+                return null;
+            }
+            
+            /* End of the object literal */
+            if(contents.charAt(pos) == '}') {
+                out.append(contents.substring(pos));
+                return out.toString();
+            }
+            
+            /* Read the key, quoted or a plain identifier */
+            int entryStart = pos;
+            String key;
+            char c = contents.charAt(pos);
+            if(c == '"' || c == '\'') {
+                int end = skipString(contents, pos);
+                if(end < 0) {
+                    return null;
+                }
+                key = contents.substring(pos + 1, end - 1);
+                pos = end;
+            } else {
+                int end = pos;
+                while(end < contents.length() && (Character.isLetterOrDigit(contents.charAt(end)) || contents.charAt(end) == '_' || contents.charAt(end) == '$')) {
+                    ++end;
+                }
+                if(end == pos) {
+                    return null;
+                }
+                key = contents.substring(pos, end);
+                pos = end;
+            }
+            
+            pos = skipWhitespace(contents, pos);
+            if(pos >= contents.length() || contents.charAt(pos) != ':') {
+                return null;
+            }
+            
+            /* Read the value up to the next comma or the end of the object */
+            int depth = 0;
+            ++pos;
+            while(pos < contents.length()) {
+                c = contents.charAt(pos);
+                if(c == '"' || c == '\'' || c == '`') {
+                    pos = skipString(contents, pos);
+                    if(pos < 0) {
+                        return null;
+                    }
+                    continue;
+                } else if(c == '{' || c == '[' || c == '(') {
+                    ++depth;
+                } else if(c == '}' || c == ']' || c == ')') {
+                    if(depth == 0) {
+                        break;
+                    }
+                    --depth;
+                } else if(c == ',' && depth == 0) {
+                    break;
+                }
+                ++pos;
+            }
+            if(pos >= contents.length()) {
+                return null;
+            }
+            
+            if(isUsed(key, keys)) {
+                if(!first) {
+                    out.append(',');
+                }
+                out.append(contents.substring(entryStart, pos).trim());
+                first = false;
+            }
+            
+            if(contents.charAt(pos) == ',') {
+                ++pos;
+            }
+        }
+    }
+    
+    /**
+     * Check if a locale key or one of its nested keys is used.
+     * @param key the locale key.
+     * @param keys the used keys.
+     * @return true if the key must be kept.
+     */
+    private static boolean isUsed(String key, Set<String> keys) {
+        if(keys.contains(key)) {
+            return true;
+        }
+        
+        for(String used : keys) {
+            if(used.startsWith(key + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Skip whitespace.
+     * @param contents the text.
+     * @param pos the start position.
+     * @return the position of the first non whitespace character.
+     */
+    private static int skipWhitespace(String contents, int pos) {
+        while(pos < contents.length() && Character.isWhitespace(contents.charAt(pos))) {
+            ++pos;
+        }
+        return pos;
+    }
+    
+    /**
+     * Skip a quoted string.
+     * @param contents the text.
+     * @param pos the position of the opening quote.
+     * @return the position after the closing quote or -1 when it is not closed.
+     */
+    private static int skipString(String contents, int pos) {
+        char quote = contents.charAt(pos);
+        for(int i = pos + 1; i < contents.length(); ++i) {
+            char c = contents.charAt(i);
+            if(c == '\\') {
+                ++i;
+            } else if(c == quote) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
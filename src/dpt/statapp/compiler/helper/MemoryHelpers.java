@@ -0,0 +1,122 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   MemoryHelpers.java
+ * Created on October 19, 2026, 04:20 PM
+ */
+package dpt.statapp.compiler.helper;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Static helper functions concerning the memory used by the compiler.
+ * @author Daan Pape
+ */
+public class MemoryHelpers {
+    
+    /* The number of bytes in a megabyte */
+    private static final long MEGABYTE = 1024 * 1024;
+    
+    /* The largest heap in use right after a garbage collection, in bytes */
+    private static final AtomicLong peakLiveHeap = new AtomicLong();
+    
+    /* True when the garbage collectors are being listened to */
+    private static boolean tracking = false;
+    
+    /**
+     * Start tracking the heap in use right after each garbage collection. 
+     * Garbage which is not yet collected says nothing about the memory the
+     * compiler really needs, only what survives a collection does. Calling
+     * this more than once has no effect. 
+     */
+    public static synchronized void trackLiveHeap() {
+        if(tracking) {
+            return;
+        }
+        tracking = true;
+        
+        final Set<String> heapPools = new HashSet<>();
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if(!(collector instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if(!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long used = 0;
+                for(Map.Entry<String, MemoryUsage> usage : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                    if(heapPools.contains(usage.getKey())) {
+                        used += usage.getValue().getUsed();
+                    }
+                }
+                peakLiveHeap.accumulateAndGet(used, Math::max);
+            }, null, null);
+        }
+    }
+    
+    /**
+     * Get the peak heap usage of this process in megabytes, measured right 
+     * after the garbage collections since trackLiveHeap was called. When no
+     * collection happened yet the heap in use now is returned. 
+     * @return the peak heap usage after garbage collection in megabytes.
+     */
+    public static long getPeakHeapUsage() {
+        long peak = peakLiveHeap.get();
+        if(peak == 0) {
+            peak = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        }
+        return (peak + MEGABYTE - 1) / MEGABYTE;
+    }
+    
+    /**
+     * Print the peak heap usage of this process and the maximum heap size. 
+     */
+    public static void printPeakHeapUsage() {
+        OutFormatter.printfLn("Peak heap in use after garbage collection: %d MB of at most %d MB", getPeakHeapUsage(), Runtime.getRuntime().maxMemory() / MEGABYTE);
+    }
+}
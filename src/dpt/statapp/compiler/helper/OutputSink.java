@@ -0,0 +1,406 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   OutputSink.java
+ * Created on October 19, 2026, 05:10 PM
+ */
+package dpt.statapp.compiler.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The destination of the compiled files. Without an archive every file is
+ * written to the output directory. With an archive the finished files, 
+ * like bundles, images, fonts and locales, are streamed straight into the 
+ * ZIP archive. Only the pages, which later stages still rewrite, are 
+ * staged in the output directory until they are committed. The size, 
+ * gzipped size and hash of every archived file are kept for the stages 
+ * which measure the output. The stages may write from several threads. 
+ * @author Daan Pape
+ */
+public class OutputSink implements Closeable {
+    /* Formats which do not get smaller when deflated */
+    private static final Set<String> COMPRESSED_TYPES = new HashSet<>(Arrays.asList(
+            "png", "jpg", "jpeg", "gif", "webp", "avif", "woff", "woff2", "zip", "gz", "br", "mp3", "mp4", "ogg", "webm"));
+    
+    /* Formats which are served with gzip content encoding */
+    private static final Set<String> TEXT_TYPES = new HashSet<>(Arrays.asList(
+            "html", "css", "js", "json", "svg", "txt", "xml", "map", "webmanifest"));
+    
+    /* Opens the contents of an entry, called once for every pass */
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+    
+    /* The output directory, the archive root in archive mode */
+    private final Path outputDir;
+    
+    /* The archive, null when writing to the output directory */
+    private final ZipOutputStream zip;
+    
+    /* The temporary file of the gzip siblings, null when they are not added */
+    private final Path gzipFile;
+    
+    /* The raw size, gzipped size and hash of every archived file by path */
+    private final Map<String, long[]> sizes = new HashMap<>();
+    private final Map<String, String> hashes = new HashMap<>();
+    
+    /* The number of archive entries, the gzip siblings included */
+    private int entries = 0;
+    
+    /* The buffer used to stream the files */
+    private final byte[] buffer = new byte[64 * 1024];
+    
+    /**
+     * Construct a new OutputSink writing to the output directory. 
+     * @param outputDir the output directory.
+     */
+    public OutputSink(Path outputDir) {
+        this.outputDir = outputDir.normalize();
+        this.zip = null;
+        this.gzipFile = null;
+    }
+    
+    /**
+     * Construct a new OutputSink writing to an archive. 
+     * @param outputDir the directory the pages are staged in.
+     * @param archive the archive to write.
+     * @param gzipFile the temporary file for the gzip siblings, null to add no gzip siblings.
+     * @throws IOException when the archive could not be created.
+     */
+    public OutputSink(Path outputDir, Path archive, Path gzipFile) throws IOException {
+        this.outputDir = outputDir.normalize();
+        this.zip = new ZipOutputStream(Files.newOutputStream(archive));
+        this.zip.setLevel(9);
+        this.gzipFile = gzipFile;
+    }
+    
+    /**
+     * Get the output directory, the root of the archive in archive mode.
+     * @return the output directory.
+     */
+    public Path getOutputDirectory() {
+        return outputDir;
+    }
+    
+    /**
+     * Check if the files go to an archive.
+     * @return true in archive mode.
+     */
+    public boolean isArchive() {
+        return zip != null;
+    }
+    
+    /**
+     * Get the number of archive entries written.
+     * @return the entry count, the gzip siblings included.
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+    
+    /**
+     * Get the path of a file relative to the output directory. 
+     * @param file the file in the output directory.
+     * @return the path with forward slashes. 
+     */
+    private String getName(Path file) {
+        return outputDir.relativize(file.normalize()).toString().replace('\\', '/');
+    }
+    
+    /**
+     * Get the extension of a file name.
+     * @param name the file name.
+     * @return the lower case extension or an empty string.
+     */
+    private static String getExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(dot + 1).toLowerCase();
+    }
+    
+    /**
+     * Write a finished file.
+     * @param file the file in the output directory.
+     * @param data the file contents.
+     * @throws IOException when the file could not be written.
+     */
+    public synchronized void write(Path file, byte[] data) throws IOException {
+        if(zip == null) {
+            Files.createDirectories(file.getParent());
+            Files.write(file, data);
+        } else {
+            archive(getName(file), () -> new ByteArrayInputStream(data), System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Copy a finished file to the output. 
+     * @param source the file to copy.
+     * @param file the file in the output directory.
+     * @throws IOException when the file could not be copied.
+     */
+    public synchronized void copy(Path source, Path file) throws IOException {
+        if(zip == null) {
+            Files.createDirectories(file.getParent());
+            Files.copy(source, file, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            archive(getName(file), () -> Files.newInputStream(source), Files.getLastModifiedTime(source).toMillis());
+        }
+    }
+    
+    /**
+     * Mark a file written to the output directory as finished. In archive
+     * mode it is moved to the archive. 
+     * @param file the file in the output directory.
+     * @throws IOException when the file could not be archived.
+     */
+    public synchronized void commit(Path file) throws IOException {
+        if(zip != null) {
+            archive(getName(file), () -> Files.newInputStream(file), Files.getLastModifiedTime(file).toMillis());
+            Files.delete(file);
+        }
+    }
+    
+    /**
+     * Move every file left in the output directory to the archive, in 
+     * sorted order. Does nothing when writing to the output directory. 
+     * @return the number of files committed.
+     * @throws IOException when a file could not be archived.
+     */
+    public synchronized int commitAll() throws IOException {
+        if(zip == null) {
+            return 0;
+        }
+        
+        List<Path> files;
+        try(Stream<Path> walk = Files.walk(outputDir)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for(Path file : files) {
+            commit(file);
+        }
+        return files.size();
+    }
+    
+    /**
+     * Check if a file is part of the output.
+     * @param file the file in the output directory.
+     * @return true when the file was written or archived.
+     */
+    public synchronized boolean exists(Path file) {
+        return Files.isRegularFile(file) || sizes.containsKey(getName(file));
+    }
+    
+    /**
+     * Get the size of an output file.
+     * @param file the file in the output directory.
+     * @return the size in bytes.
+     * @throws IOException when the file could not be read.
+     */
+    public synchronized long getSize(Path file) throws IOException {
+        long[] archived = sizes.get(getName(file));
+        return archived != null ? archived[0] : Files.size(file);
+    }
+    
+    /**
+     * Get the size of an output file after gzip compression.
+     * @param file the file in the output directory.
+     * @return the compressed size in bytes.
+     * @throws IOException when the file could not be read.
+     */
+    public synchronized long getGzipSize(Path file) throws IOException {
+        long[] archived = sizes.get(getName(file));
+        return archived != null ? archived[1] : FileHelpers.gzipSize(Files.readAllBytes(file));
+    }
+    
+    /**
+     * Get the SHA-256 content hash of an output file.
+     * @param file the file in the output directory.
+     * @return the hash as a lowercase hexadecimal string.
+     * @throws IOException when the file could not be read.
+     */
+    public synchronized String getHash(Path file) throws IOException {
+        String archived = hashes.get(getName(file));
+        return archived != null ? archived : FileHelpers.contentHash(file);
+    }
+    
+    /**
+     * List all output files, the archived ones included. 
+     * @return the sorted output files.
+     * @throws IOException when the output directory could not be read.
+     */
+    public synchronized List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try(Stream<Path> walk = Files.walk(outputDir)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        for(String name : sizes.keySet()) {
+            files.add(outputDir.resolve(name));
+        }
+        Collections.sort(files);
+        return files;
+    }
+    
+    /**
+     * Add a file to the archive and remember its size and hash. Text files
+     * get their gzipped size measured and optionally a gzip sibling. 
+     * @param name the entry name.
+     * @param source opens the file contents.
+     * @param time the modification time of the entry.
+     * @throws IOException when the file could not be added.
+     */
+    private void archive(String name, Source source, long time) throws IOException {
+        boolean text = TEXT_TYPES.contains(getExtension(name));
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            /* Every Java platform is required to support SHA-256 */
+            throw new IllegalStateException(ex);
+        }
+        
+        /* The gzipped copy is only written to disk when it is added to the archive */
+        final long[] gzipSize = new long[1];
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                gzipSize[0]++;
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) {
+                gzipSize[0] += len;
+            }
+        };
+        
+        long size = 0;
+        try(InputStream in = new DigestInputStream(source.open(), digest);
+                OutputStream gzip = text ? new GZIPOutputStream(gzipFile != null ? Files.newOutputStream(gzipFile) : counter) : null) {
+            int count;
+            while((count = in.read(buffer)) != -1) {
+                size += count;
+                if(gzip != null) {
+                    gzip.write(buffer, 0, count);
+                }
+            }
+        }
+        
+        writeEntry(name, source, time);
+        if(text && gzipFile != null) {
+            gzipSize[0] = Files.size(gzipFile);
+            writeEntry(name + ".gz", () -> Files.newInputStream(gzipFile), time);
+        }
+        
+        /* Formats which are not served compressed count with their own size */
+        sizes.put(name, new long[] {size, text ? gzipSize[0] : size});
+        hashes.put(name, FileHelpers.toHex(digest.digest()));
+    }
+    
+    /**
+     * Write an archive entry. A compressed format is stored without 
+     * deflating, which needs the checksum up front, so the contents are 
+     * read twice instead of being held in memory. 
+     * @param name the entry name.
+     * @param source opens the file contents.
+     * @param time the modification time of the entry.
+     * @throws IOException when the entry could not be written.
+     */
+    private void writeEntry(String name, Source source, long time) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        if(COMPRESSED_TYPES.contains(getExtension(name))) {
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try(InputStream in = new CheckedInputStream(source.open(), crc)) {
+                int count;
+                while((count = in.read(buffer)) != -1) {
+                    size += count;
+                }
+            }
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+        }
+        
+        zip.putNextEntry(entry);
+        try(InputStream in = source.open()) {
+            int count;
+            while((count = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, count);
+            }
+        }
+        zip.closeEntry();
+        entries++;
+    }
+    
+    /**
+     * Finish the archive and delete the temporary gzip file.
+     * @throws IOException when the archive could not be finished.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(zip == null) {
+            return;
+        }
+        try {
+            zip.close();
+        } finally {
+            if(gzipFile != null) {
+                Files.deleteIfExists(gzipFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   Snapshot.java
+ * Created on October 19, 2026, 02:20 PM
+ */
+package dpt.statapp.compiler.helper;
+
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A Merkle snapshot of a compiled app. Every file is stored with its 
+ * content hash and size, every directory with a hash over the names and
+ * hashes of its children. Two snapshots are compared top down and only 
+ * directories with a different hash are visited. 
+ * 
+ * The snapshot is a text file with one entry per line: 
+ * 
+ *      <hash> <size> <path>     for a file
+ *      <hash> - <path>/         for a directory, the root is ./
+ * 
+ * @author Daan Pape
+ */
+public class Snapshot {
+    
+    /* The name of the root directory entry */
+    public static final String ROOT = "./";
+    
+    /* The file and directory hashes by path, directories end with a slash */
+    private final Map<String, String> hashes = new TreeMap<>();
+    
+    /* The file sizes by path */
+    private final Map<String, Long> sizes = new TreeMap<>();
+    
+    /**
+     * Create the snapshot of the compiled files. 
+     * @param output the compiled files, in the app directory or an archive.
+     * @return the snapshot.
+     * @throws IOException when a file could not be read.
+     */
+    public static Snapshot create(OutputSink output) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        
+        for(Path file : output.listFiles()) {
+            String path = output.getOutputDirectory().relativize(file).toString().replace('\\', '/');
+            snapshot.hashes.put(path, output.getHash(file));
+            snapshot.sizes.put(path, output.getSize(file));
+        }
+        
+        snapshot.hashDirectory(ROOT);
+        return snapshot;
+    }
+    
+    /**
+     * Calculate the hash of a directory and all its subdirectories.
+     * @param dir the directory path, ending with a slash.
+     * @return the directory hash.
+     */
+    private String hashDirectory(String dir) {
+        StringBuilder listing = new StringBuilder();
+        for(String child : getChildren(dir)) {
+            String hash = child.endsWith("/") ? hashDirectory(child) : hashes.get(child);
+            listing.append(child).append(' ').append(hash).append('\n');
+        }
+        
+        String hash = FileHelpers.contentHash(listing.toString().getBytes(StandardCharsets.UTF_8));
+        hashes.put(dir, hash);
+        return hash;
+    }
+    
+    /**
+     * Get the direct children of a directory, subdirectories end with a slash.
+     * @param dir the directory path, ending with a slash.
+     * @return the sorted children paths.
+     */
+    private TreeSet<String> getChildren(String dir) {
+        String prefix = dir.equals(ROOT) ? "" : dir;
+        TreeSet<String> children = new TreeSet<>();
+        for(String path : sizes.keySet()) {
+            if(path.startsWith(prefix)) {
+                int slash = path.indexOf('/', prefix.length());
+                children.add(slash == -1 ? path : path.substring(0, slash + 1));
+            }
+        }
+        return children;
+    }
+    
+    /**
+     * Get the hash of the complete snapshot.
+     * @return the root directory hash.
+     */
+    public String getRootHash() {
+        return hashes.get(ROOT);
+    }
+    
+    /**
+     * Get the number of files in the snapshot. 
+     * @return the file count.
+     */
+    public int getFileCount() {
+        return sizes.size();
+    }
+    
+    /**
+     * Write the snapshot to a file. 
+     * @param file the snapshot file. 
+     * @throws IOException when the file could not be written.
+     */
+    public void save(Path file) throws IOException {
+        try(BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(Map.Entry<String, String> entry : hashes.entrySet()) {
+                Long size = sizes.get(entry.getKey());
+                out.write(entry.getValue() + " " + (size == null ? "-" : size.toString()) + " " + entry.getKey());
+                out.newLine();
+            }
+        }
+    }
+    
+    /**
+     * Read a snapshot file. 
+     * @param file the snapshot file.
+     * @return the snapshot or null when the file is not a valid snapshot.
+     */
+    public static Snapshot load(Path file) {
+        Snapshot snapshot = new Snapshot();
+        try(BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = in.readLine()) != null) {
+                if(line.trim().isEmpty()) {
+                    continue;
+                }
+                
+                String[] parts = line.split(" ", 3);
+                if(parts.length != 3) {
+                    ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "Invalid snapshot line in '%s': %s", file.toString(), line);
+                    return null;
+                }
+                snapshot.hashes.put(parts[2], parts[0]);
+                if(!parts[1].equals("-")) {
+                    snapshot.sizes.put(parts[2], Long.parseLong(parts[1]));
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "Could not read snapshot '%s': %s", file.toString(), ex.getMessage());
+            return null;
+        }
+        
+        if(snapshot.getRootHash() == null) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.FATAL, "Snapshot '%s' has no root entry", file.toString());
+            return null;
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Compare this snapshot with an older snapshot. Directories with the 
+     * same hash are skipped without looking at their contents. 
+     * @param previous the older snapshot.
+     * @param added receives the files which are new.
+     * @param changed receives the files with different contents.
+     * @param removed receives the files which no longer exist.
+     */
+    public void diff(Snapshot previous, List<String> added, List<String> changed, List<String> removed) {
+        diffDirectory(previous, ROOT, added, changed, removed);
+    }
+    
+    /**
+     * Compare a directory of two snapshots. 
+     * @param previous the older snapshot.
+     * @param dir the directory path.
+     * @param added receives the files which are new.
+     * @param changed receives the files with different contents.
+     * @param removed receives the files which no longer exist.
+     */
+    private void diffDirectory(Snapshot previous, String dir, List<String> added, List<String> changed, List<String> removed) {
+        String hash = hashes.get(dir);
+        String previousHash = previous.hashes.get(dir);
+        if(hash != null && hash.equals(previousHash)) {
+            return;
+        }
+        
+        TreeSet<String> children = hash == null ? new TreeSet<>() : getChildren(dir);
+        if(previousHash != null) {
+            children.addAll(previous.getChildren(dir));
+        }
+        
+        for(String child : children) {
+            if(child.endsWith("/")) {
+                diffDirectory(previous, child, added, changed, removed);
+            } else if(!previous.hashes.containsKey(child)) {
+                added.add(child);
+            } else if(!hashes.containsKey(child)) {
+                removed.add(child);
+            } else if(!hashes.get(child).equals(previous.hashes.get(child))) {
+                changed.add(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   SpriteSheetBuilder.java
+ * Created on October 19, 2026, 11:55 AM
+ */
+package dpt.statapp.compiler.helper;
+
+import dpt.statapp.compiler.config.Config;
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import dpt.statapp.compiler.output.OutFormatter;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+
+/**
+ * Combines the small PNG images used as background in the styles into 
+ * sprite sheets and rewrites the style rules to use them. Only rules which
+ * can not show a neighbouring sprite are rewritten: the background does not
+ * repeat, has no position or size of its own and the element is not larger
+ * than the image. 
+ * @author Daan Pape
+ */
+public class SpriteSheetBuilder {
+    
+    /* The maximum width and height of a sprite sheet */
+    private static final int MAX_SHEET_SIZE = 1024;
+    
+    /* The empty space around every sprite */
+    private static final int PADDING = 2;
+    
+    /* Matches a rule block without nested blocks, group 1 is the body */
+    private static final Pattern RULE_PATTERN = Pattern.compile("\\{([^{}]*)\\}");
+    
+    /* Matches a background declaration with a single url, group 1 is the value */
+    private static final Pattern BACKGROUND_PATTERN = Pattern.compile("background(?:-image)?\\s*:([^;}]*url\\(\\s*['\"]?([^'\")]+)['\"]?\\s*\\)[^;}]*)");
+    
+    /* Matches a pixel size declaration */
+    private static final String SIZE_PATTERN = "(?:^|[;\\s])%s\\s*:\\s*(\\d+)px";
+    
+    /* The project configuration */
+    private final Config config;
+    
+    /* The project root, the app directory, the directory the styles are written to and the directory of the sprite sheets */
+    private final Path projectDir;
+    private final Path appDir;
+    private final Path styleOutDir;
+    private final Path imageOutDir;
+    
+    /* The destination of the sprite sheets */
+    private final OutputSink output;
+    
+    /* The images which are not combined */
+    private final List<PathMatcher> excludes = new ArrayList<>();
+    
+    /* The candidate images by their file in the app */
+    private final Map<Path, BufferedImage> images = new LinkedHashMap<>();
+    
+    /* The placement of every combined image: sheet, x and y */
+    private final Map<Path, int[]> placements = new HashMap<>();
+    
+    /* The number of sprite sheets written */
+    private int sheetCount = 0;
+    
+    /**
+     * Construct a new SpriteSheetBuilder.
+     * @param filePath the project root. 
+     * @param config the project configuration.
+     * @param styleOutDir the directory the styles are written to. 
+     * @param output the destination of the sprite sheets.
+     */
+    public SpriteSheetBuilder(String filePath, Config config, Path styleOutDir, OutputSink output) {
+        this.config = config;
+        this.output = output;
+        this.projectDir = Paths.get(filePath).normalize();
+        this.appDir = Paths.get(filePath + config.outputDirectory).normalize();
+        this.styleOutDir = styleOutDir.normalize();
+        this.imageOutDir = appDir.resolve(config.imageDirectory);
+        
+        for(String exclude : config.spriteExclude) {
+            excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + exclude));
+        }
+    }
+    
+    /**
+     * Get the image a rule background uses if it can be combined.
+     * @param body the rule body.
+     * @param background the background declaration matcher.
+     * @return the image file in the app or null when it can not be combined. 
+     */
+    private Path getCandidate(String body, Matcher background) {
+        String url = background.group(2).trim();
+        if(!url.toLowerCase().endsWith(".png") || url.contains(":") || url.startsWith("/")) {
+            return null;
+        }
+        
+        /* Anything besides the url, no-repeat and a color could position the image */
+        String rest = background.group(1).replaceAll("url\\([^)]*\\)", " ").replace("no-repeat", " ").replace("!important", " ").trim();
+        if((!rest.isEmpty() && !rest.matches("#[0-9a-fA-F]{3,8}|transparent|[a-z]+")) || rest.matches("top|bottom|left|right|center|repeat|repeat-x|repeat-y|space|round|fixed|local|scroll|inherit|initial|unset")) {
+            return null;
+        }
+        if(!body.contains("no-repeat") || body.contains("background-position") || body.contains("background-size") || body.matches("(?s).*background-repeat\\s*:\\s*(?!no-repeat).*")) {
+            return null;
+        }
+        
+        Path image = styleOutDir.resolve(url).normalize();
+        for(PathMatcher exclude : excludes) {
+            if(exclude.matches(image.getFileName())) {
+                return null;
+            }
+        }
+        return image;
+    }
+    
+    /**
+     * Read a pixel size from a rule body.
+     * @param body the rule body.
+     * @param property the property name.
+     * @return the size or -1 when it is not set in pixels.
+     */
+    private static int getPixelSize(String body, String property) {
+        Matcher m = Pattern.compile(String.format(SIZE_PATTERN, property)).matcher(body);
+        return m.find() ? Integer.parseInt(m.group(1)) : -1;
+    }
+    
+    /**
+     * Check if a rule can use a sprite, the element must fit within the image. 
+     * @param body the rule body.
+     * @param image the image.
+     * @return true if no neighbouring sprite can become visible.
+     */
+    private static boolean fits(String body, BufferedImage image) {
+        int width = getPixelSize(body, "width");
+        int height = getPixelSize(body, "height");
+        return width > 0 && height > 0 && width <= image.getWidth() && height <= image.getHeight();
+    }
+    
+    /**
+     * Collect the images a style can have combined. 
+     * @param css the style contents. 
+     */
+    public void collect(String css) {
+        Matcher rule = RULE_PATTERN.matcher(css);
+        while(rule.find()) {
+            String body = rule.group(1);
+            Matcher background = BACKGROUND_PATTERN.matcher(body);
+            if(!background.find()) {
+                continue;
+            }
+            
+            Path image = getCandidate(body, background);
+            if(image == null || images.containsKey(image)) {
+                continue;
+            }
+            
+            /* Read the original image, the app does not contain the images yet */
+            Path source = projectDir.resolve(appDir.relativize(image));
+            try {
+                BufferedImage decoded = Files.isRegularFile(source) ? ImageIO.read(source.toFile()) : null;
+                if(decoded != null && decoded.getWidth() <= config.spriteMaxSize && decoded.getHeight() <= config.spriteMaxSize && fits(body, decoded)) {
+                    images.put(image, decoded);
+                }
+            } catch (IOException ex) {
+                ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Could not read image '%s' for the sprite sheet", source.toString());
+            }
+        }
+    }
+    
+    /**
+     * Pack the collected images in sprite sheets and write them to the app. 
+     * The images are placed on shelves from the tallest to the smallest, a
+     * new sheet is started when the current one is full. 
+     * @return true on success, false on error.
+     */
+    public boolean build() {
+        if(images.size() < 2) {
+            OutFormatter.printLn("Not enough small background images for a sprite sheet");
+            images.clear();
+            return true;
+        }
+        
+        List<Path> sorted = new ArrayList<>(images.keySet());
+        sorted.sort((a, b) -> Integer.compare(images.get(b).getHeight(), images.get(a).getHeight()));
+        
+        /* Shelf packing, the placement is sheet, x and y */
+        List<int[]> sheetSizes = new ArrayList<>();
+        int sheet = 0, x = 0, y = 0, shelfHeight = 0;
+        sheetSizes.add(new int[] {0, 0});
+        for(Path image : sorted) {
+            BufferedImage img = images.get(image);
+            if(x + img.getWidth() > MAX_SHEET_SIZE) {
+                x = 0;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            if(y + img.getHeight() > MAX_SHEET_SIZE) {
+                sheet++;
+                sheetSizes.add(new int[] {0, 0});
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+            }
+            
+            placements.put(image, new int[] {sheet, x, y});
+            int[] size = sheetSizes.get(sheet);
+            size[0] = Math.max(size[0], x + img.getWidth());
+            size[1] = Math.max(size[1], y + img.getHeight());
+            shelfHeight = Math.max(shelfHeight, img.getHeight());
+            x += img.getWidth() + PADDING;
+        }
+        
+        /* Draw and write the sheets */
+        for(int i = 0; i < sheetSizes.size(); ++i) {
+            BufferedImage canvas = new BufferedImage(sheetSizes.get(i)[0], sheetSizes.get(i)[1], BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = canvas.createGraphics();
+            for(Map.Entry<Path, int[]> placement : placements.entrySet()) {
+                if(placement.getValue()[0] == i) {
+                    g.drawImage(images.get(placement.getKey()), placement.getValue()[1], placement.getValue()[2], null);
+                }
+            }
+            g.dispose();
+            
+            try {
+                output.write(getSheet(i), ImageHelpers.encode(canvas, true, 100));
+            } catch (IOException ex) {
+                ErrorFormatter.writeStringError(ErrorType.FATAL, "Could not write sprite sheet:");
+                ex.printStackTrace(System.err);
+                return false;
+            }
+        }
+        
+        sheetCount = sheetSizes.size();
+        OutFormatter.printfLn("Combined %d background images in %d sprite sheets", placements.size(), sheetSizes.size());
+        return true;
+    }
+    
+    /**
+     * Get the file of a sprite sheet.
+     * @param sheet the sheet number.
+     * @return the sprite sheet file in the app.
+     */
+    private Path getSheet(int sheet) {
+        return imageOutDir.resolve("sprite-" + sheet + ".png");
+    }
+    
+    /**
+     * Check if a file is one of the sprite sheets written by this builder.
+     * @param file the file in the app.
+     * @return true when the file is a sprite sheet. 
+     */
+    public boolean isSheet(Path file) {
+        for(int i = 0; i < sheetCount; ++i) {
+            if(getSheet(i).normalize().equals(file.normalize())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Rewrite the rules of a style to use the sprite sheets. 
+     * @param css the style contents.
+     * @return the rewritten style. 
+     */
+    public String rewrite(String css) {
+        if(placements.isEmpty()) {
+            return css;
+        }
+        
+        StringBuilder result = new StringBuilder();
+        Matcher rule = RULE_PATTERN.matcher(css);
+        int cursor = 0;
+        while(rule.find()) {
+            String body = rule.group(1);
+            Matcher background = BACKGROUND_PATTERN.matcher(body);
+            if(!background.find()) {
+                continue;
+            }
+            
+            Path image = getCandidate(body, background);
+            int[] placement = image == null ? null : placements.get(image);
+            if(placement == null || !fits(body, images.get(image))) {
+                continue;
+            }
+            
+            /* Point the url to the sheet and add the offset after the declaration */
+            String sheet = styleOutDir.relativize(getSheet(placement[0])).toString().replace('\\', '/');
+            String declaration = background.group(0).replaceFirst("url\\([^)]*\\)", "url(" + Matcher.quoteReplacement(sheet) + ")");
+            String position = ";background-position:" + (placement[1] == 0 ? "0" : "-" + placement[1] + "px") + " " + (placement[2] == 0 ? "0" : "-" + placement[2] + "px");
+            
+            result.append(css, cursor, rule.start(1) + background.start());
+            result.append(declaration).append(position);
+            cursor = rule.start(1) + background.end();
+        }
+        result.append(css.substring(cursor));
+        return result.toString();
+    }
+}
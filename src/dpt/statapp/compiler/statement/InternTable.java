@@ -0,0 +1,122 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   InternTable.java
+ * Created on October 19, 2026, 04:05 PM
+ */
+package dpt.statapp.compiler.statement;
+
+/**
+ * A table of unique strings which can be looked up by a range of 
+ * characters, so a string is only created the first time a range with
+ * these characters is seen. Statement arguments are the same few file 
+ * names over and over, the table keeps one copy of each. The table is
+ * not thread safe. 
+ * @author Daan Pape
+ */
+final class InternTable {
+    
+    /* The table stops growing at this many entries, later strings are not kept */
+    private static final int MAX_ENTRIES = 1 << 16;
+    
+    /* Open addressing table, the length is a power of two */
+    private String[] table = new String[256];
+    private int size = 0;
+    
+    /**
+     * Get the unique string for a range of characters. 
+     * @param source the characters.
+     * @param start the start offset, inclusive.
+     * @param end the end offset, exclusive.
+     * @return the string with these characters.
+     */
+    String intern(CharSequence source, int start, int end) {
+        /* The same hash as String.hashCode, which every string caches */
+        int hash = 0;
+        for(int i = start; i < end; ++i) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        
+        int mask = table.length - 1;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        for(String entry = table[index]; entry != null; entry = table[index]) {
+            if(entry.hashCode() == hash && matches(entry, source, start, end)) {
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+        
+        String value = source.subSequence(start, end).toString();
+        if(size < MAX_ENTRIES) {
+            table[index] = value;
+            if(++size * 2 > table.length) {
+                grow();
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Compare a string with a range of characters. 
+     * @param entry the string.
+     * @param source the characters.
+     * @param start the start offset, inclusive.
+     * @param end the end offset, exclusive.
+     * @return true if they are equal.
+     */
+    private static boolean matches(String entry, CharSequence source, int start, int end) {
+        if(entry.length() != end - start) {
+            return false;
+        }
+        for(int i = 0; i < entry.length(); ++i) {
+            if(entry.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Double the table size.
+     */
+    private void grow() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for(String entry : old) {
+            if(entry != null) {
+                int hash = entry.hashCode();
+                int index = (hash ^ (hash >>> 16)) & mask;
+                while(table[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = entry;
+            }
+        }
+    }
+}
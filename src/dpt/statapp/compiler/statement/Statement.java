@@ -32,20 +32,32 @@
 package dpt.statapp.compiler.statement;
 
 /**
- * Represents a DPT-StatApp statement.
+ * Represents a DPT-StatApp statement. A parsed statement refers to the 
+ * characters of its arguments in the page, an argument only becomes a 
+ * string when it is asked for. 
  * @author Daan Pape
  */
 public class Statement {
+    /* The unique argument strings, a table per thread so no locking is needed */
+    private static final ThreadLocal<InternTable> ARGUMENTS = ThreadLocal.withInitial(InternTable::new);
+    
     /**
      * The type of statement
      */
     protected StatementType type;
     
     /**
-     * The arguments of the statement
+     * The arguments of the statement, created when first asked for
      */
     protected String[] args;
     
+    /**
+     * The characters the arguments are read from and the start and
+     * end offset of every argument
+     */
+    protected CharSequence source;
+    protected int[] argOffsets;
+    
     /**
      * Construct a new Statement
      * @param type the type of statement
@@ -57,6 +69,19 @@ public class Statement {
         this.args = args;
     }
     
+    /**
+     * Construct a new Statement which reads its arguments from the source
+     * @param type the type of statement
+     * @param source the characters containing the arguments
+     * @param argOffsets the start and end offset of every argument
+     */
+    Statement(StatementType type, CharSequence source, int[] argOffsets)
+    {
+        this.type = type;
+        this.source = source;
+        this.argOffsets = argOffsets;
+    }
+    
     /**
      * Get the type of this statement. 
      * @return the statement type. 
@@ -64,12 +89,40 @@ public class Statement {
     public StatementType getType() {
         return type;
     }
+    
+    /**
+     * Get the number of arguments of this statement.
+     * @return the argument count.
+     */
+    public int getArgCount() {
+        return args != null ? args.length : argOffsets.length / 2;
+    }
+    
+    /**
+     * Get a single argument of this statement. 
+     * @param index the argument index.
+     * @return the argument.
+     */
+    public String getArg(int index) {
+        if(args != null) {
+            return args[index];
+        }
+        return ARGUMENTS.get().intern(source, argOffsets[index * 2], argOffsets[index * 2 + 1]);
+    }
 
     /**
      * Get the list of arguments for this statement.
      * @return the statement argument list.
      */
     public String[] getArgs() {
+        if(args == null) {
+            String[] values = new String[getArgCount()];
+            for(int i = 0; i < values.length; ++i) {
+                values[i] = getArg(i);
+            }
+            args = values;
+            source = null;
+        }
         return args;
     }
 }
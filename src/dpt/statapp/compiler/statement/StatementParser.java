@@ -31,36 +31,106 @@
  */
 package dpt.statapp.compiler.statement;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Class containing static helper methods to parse Strings
- * into Statements.
+ * into Statements. The statement is scanned once, character by 
+ * character, without copying it. 
  * @author Daan Pape
  */
 public class StatementParser {
     
     /**
-     * Parse the arguments of a statement. 
-     * @param statementString the statementString to parse. 
-     * @param openPar the index of the opening parentheses. 
-     * @param closePar the index of the closing parentheses.
-     * @return an array of arguments.
+     * Find a character in a range.
+     * @param source the characters to search in.
+     * @param c the character to find.
+     * @param start the start offset, inclusive.
+     * @param end the end offset, exclusive.
+     * @return the offset of the character or -1 when it is not found.
      */
-    private static String[] parseStatementArgs(String statementString, int openPar, int closePar)
+    private static int indexOf(CharSequence source, char c, int start, int end) {
+        for(int i = start; i < end; ++i) {
+            if(source.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Check if a range holds exactly the given text.
+     * @param source the characters.
+     * @param start the start offset, inclusive.
+     * @param end the end offset, exclusive.
+     * @param text the text to compare with.
+     * @return true if the range equals the text.
+     */
+    private static boolean rangeEquals(CharSequence source, int start, int end, String text) {
+        if(end - start != text.length()) {
+            return false;
+        }
+        for(int i = 0; i < text.length(); ++i) {
+            if(source.charAt(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Parse the arguments of a statement. The arguments are split on the 
+     * commas and trimmed the way String.split and String.trim do: empty 
+     * arguments at the end are dropped unless there is no comma at all.
+     * @param source the characters of the statement. 
+     * @param start the offset after the opening parentheses. 
+     * @param end the offset of the closing parentheses.
+     * @return the start and end offset of every argument.
+     */
+    private static int[] parseStatementArgs(CharSequence source, int start, int end)
     {
-        String[] args = statementString.substring(openPar, closePar).split(",");
-        List<String> cleanArgs = new ArrayList<>();
+        int commas = 0;
+        for(int i = start; i < end; ++i) {
+            if(source.charAt(i) == ',') {
+                commas++;
+            }
+        }
+        
+        int[] offsets = new int[(commas + 1) * 2];
+        int count = 0;
+        int argStart = start;
+        for(int i = start; i <= end; ++i) {
+            if(i == end || source.charAt(i) == ',') {
+                offsets[count * 2] = argStart;
+                offsets[count * 2 + 1] = i;
+                count++;
+                argStart = i + 1;
+            }
+        }
+        
+        /* Drop empty arguments at the end */
+        if(commas > 0) {
+            while(count > 0 && offsets[count * 2 - 2] == offsets[count * 2 - 1]) {
+                count--;
+            }
+        }
         
         /* Trim whitespace */
-        for(String arg : args) {
-            cleanArgs.add(arg.trim());
+        for(int i = 0; i < count; ++i) {
+            int s = offsets[i * 2], e = offsets[i * 2 + 1];
+            while(s < e && source.charAt(s) <= ' ') {
+                s++;
+            }
+            while(e > s && source.charAt(e - 1) <= ' ') {
+                e--;
+            }
+            offsets[i * 2] = s;
+            offsets[i * 2 + 1] = e;
         }
         
-        return cleanArgs.toArray(new String[0]);
+        return count * 2 == offsets.length ? offsets : Arrays.copyOf(offsets, count * 2);
     }
-
+    
     /**
      * Try to parse a string to a statement.
      * @param statementString the String to parse. 
@@ -69,46 +139,66 @@ public class StatementParser {
      */
     public static Statement parseStatement(String statementString) throws StatementParseException
     {
-        Statement stmt = null;
+        return parseStatement(statementString, 0, statementString.length());
+    }
+    
+    /**
+     * Try to parse a range of a page to a statement. Whitespace around the
+     * statement is ignored.
+     * @param source the page containing the statement. 
+     * @param start the start offset of the statement, inclusive.
+     * @param end the end offset of the statement, exclusive.
+     * @return the parsed statement if successful. 
+     * @throws StatementParseException when the statement could not be parsed.
+     */
+    public static Statement parseStatement(CharSequence source, int start, int end) throws StatementParseException
+    {
+        /* Trim whitespace */
+        end = Math.max(start, end);
+        while(start < end && source.charAt(start) <= ' ') {
+            start++;
+        }
+        while(end > start && source.charAt(end - 1) <= ' ') {
+            end--;
+        }
         
         /* Find opening parentheses */
-        int openParentheses = statementString.indexOf('(');
+        int openParentheses = indexOf(source, '(', start, end);
         if(openParentheses == -1) {
-            throw new StatementParseException("[SYNTAX] Could not find opening parentheses", statementString);
+            throw new StatementParseException("[SYNTAX] Could not find opening parentheses", source.subSequence(start, end).toString());
         }
         
         /* Find closing parentheses */
-        int closingParentheses = statementString.indexOf(')', openParentheses);
+        int closingParentheses = indexOf(source, ')', openParentheses, end);
         if(closingParentheses == -1) {
-            throw new StatementParseException("[SYNTAX] Could not find closing parentheses", statementString);
+            throw new StatementParseException("[SYNTAX] Could not find closing parentheses", source.subSequence(start, end).toString());
         }
         
         /* Filter action based on statement string */
-        String stString = statementString.substring(0, openParentheses);
-        String[] args = parseStatementArgs(statementString, openParentheses + 1, closingParentheses);
-        switch(stString) {
-            case "partial" :
-                if(args.length != 1) {
-                    throw new StatementParseException("Argument count mismatch for partial statement expected 1 got " + args.length, statementString);
-                }
-                stmt = new Statement(StatementType.PARTIAL, args);
-                break;
-            case "script" :
-                if(args.length != 2) {
-                    throw new StatementParseException("Argument count mismatch for partial statement expected 2 got " + args.length, statementString);
-                }
-                stmt = new Statement(StatementType.SCRIPT, args);
-                break;
-            case "style" :
-                if(args.length != 1) {
-                    throw new StatementParseException("Argument count mismatch for style statement expected 1 got " + args.length, statementString);
-                }
-                stmt = new Statement(StatementType.STYLE, args);
-                break;
-            default:
-                throw new StatementParseException("[SYNTAX] Unknown statement '" + statementString + "'", statementString);
+        int[] args = parseStatementArgs(source, openParentheses + 1, closingParentheses);
+        int count = args.length / 2;
+        
+        if(rangeEquals(source, start, openParentheses, "partial")) {
+            if(count != 1) {
+                throw new StatementParseException("Argument count mismatch for partial statement expected 1 got " + count, source.subSequence(start, end).toString());
+            }
+            return new Statement(StatementType.PARTIAL, source, args);
+        } else if(rangeEquals(source, start, openParentheses, "script")) {
+            if(count != 2 && count != 3) {
+                throw new StatementParseException("Argument count mismatch for partial statement expected 2 got " + count, source.subSequence(start, end).toString());
+            }
+            if(count == 3 && !rangeEquals(source, args[4], args[5], "async")) {
+                throw new StatementParseException("Unknown script option '" + source.subSequence(args[4], args[5]) + "', expected 'async'", source.subSequence(start, end).toString());
+            }
+            return new Statement(StatementType.SCRIPT, source, args);
+        } else if(rangeEquals(source, start, openParentheses, "style")) {
+            if(count != 1) {
+                throw new StatementParseException("Argument count mismatch for style statement expected 1 got " + count, source.subSequence(start, end).toString());
+            }
+            return new Statement(StatementType.STYLE, source, args);
         }
         
-        return stmt;
+        String statementString = source.subSequence(start, end).toString();
+        throw new StatementParseException("[SYNTAX] Unknown statement '" + statementString + "'", statementString);
     }
 }
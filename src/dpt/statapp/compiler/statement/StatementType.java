@@ -41,7 +41,7 @@ package dpt.statapp.compiler.statement;
  */
 public enum StatementType {
     PARTIAL("partial"),     /* Includes the source code of a partial, expects 1 argument being the filename */
-    SCRIPT("script"),       /* Includes a javascript file, expects 2 arguments being the filename and the sort order (0 if not given) */
+    SCRIPT("script"),       /* Includes a javascript file, expects 2 arguments being the filename and the sort order (0 if not given), optionally followed by 'async' */
     STYLE("style");         /* Includes a css file, expects 1 argument being the filename */
     
     /* The textual representation of a statement */
@@ -0,0 +1,89 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   CachingCompressor.java
+ * Created on October 19, 2026, 01:40 PM
+ */
+package dpt.statapp.compressor;
+
+import dpt.statapp.compiler.helper.FileHelpers;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compressor decorator which remembers the output for every input. The
+ * cache is shared by all projects compiled in this process, so a library 
+ * used by many projects is only compressed once.
+ * @author Daan Pape
+ */
+public class CachingCompressor implements Compressor {
+    
+    /* The maximum number of cached output characters for all compressors */
+    private static final long MAX_CACHED_CHARS = 64 * 1024 * 1024;
+    
+    /* Maps the compressor class and the input hash to the compressed output */
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicLong CACHED_CHARS = new AtomicLong();
+    
+    /* The compressor doing the actual work */
+    private final Compressor compressor;
+    
+    /**
+     * Construct a new CachingCompressor.
+     * @param compressor the compressor to cache the output of.
+     */
+    public CachingCompressor(Compressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public String compress(String input) {
+        return compress(input, "an asset");
+    }
+    
+    @Override
+    public String compress(String input, String name) {
+        String key = compressor.getClass().getName() + ":" + FileHelpers.contentHash(input.getBytes(StandardCharsets.UTF_8));
+        
+        String output = CACHE.get(key);
+        if(output == null) {
+            output = compressor.compress(input, name);
+            
+            /* Stop caching when the cache is full, compression still works */
+            if(CACHED_CHARS.addAndGet(output.length()) <= MAX_CACHED_CHARS) {
+                CACHE.put(key, output);
+            } else {
+                CACHED_CHARS.addAndGet(-output.length());
+            }
+        }
+        
+        return output;
+    }
+}
@@ -43,4 +43,14 @@ public interface Compressor {
      * @return the compressed output.
      */
     public String compress(String input);
+    
+    /**
+     * Compress the input of a named asset and return the compressed output.
+     * @param input the input to compress.
+     * @param name the name of the asset, used for reporting.
+     * @return the compressed output.
+     */
+    public default String compress(String input, String name) {
+        return compress(input);
+    }
 }
@@ -0,0 +1,120 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   CompressorFactory.java
+ * Created on October 19, 2026, 05:20 PM
+ */
+package dpt.statapp.compressor;
+
+import dpt.statapp.compiler.config.Config;
+import java.util.function.Supplier;
+
+/**
+ * Creates the compressors selected by the project configuration. The
+ * compressors cache their output and get the configured time budget, the
+ * inline compressors of the page compressor get half of it.
+ * @author Daan Pape
+ */
+public class CompressorFactory {
+    
+    /**
+     * Create the compressor for scripts. When the YUI compressor exceeds
+     * the time budget the fast compressor is used instead.
+     * @param config the project configuration.
+     * @return the YUI compressor or the fast compressor.
+     */
+    public static Compressor createScriptCompressor(Config config) {
+        return createScriptCompressor(config, config.compressBudget);
+    }
+    
+    /**
+     * Create the compressor for scripts with the given time budget.
+     * @param config the project configuration.
+     * @param budget the time budget in milliseconds, 0 disables the budget.
+     * @return the YUI compressor or the fast compressor.
+     */
+    private static Compressor createScriptCompressor(Config config, long budget) {
+        if(Config.FAST_COMPRESSOR.equals(config.scriptCompressor)) {
+            return withBudget(config, budget, () -> new CachingCompressor(new FastJavascriptCompressor()), null);
+        }
+        return withBudget(config, budget, () -> new CachingCompressor(new JavascriptCompressor()), new FastJavascriptCompressor());
+    }
+    
+    /**
+     * Create the compressor for pages, which uses the script and style 
+     * compressors for inline scripts and styles. The inline compressors get
+     * half of the page budget, so a slow inline script falls back to the
+     * fast compressor before the whole page runs out of time.
+     * @param config the project configuration.
+     * @return the HTML compressor with the configured profile.
+     */
+    public static Compressor createHtmlCompressor(Config config) {
+        HtmlProfile profile = config.htmlProfile == null ? HtmlProfile.SAFE : HtmlProfile.forName(config.htmlProfile);
+        long inlineBudget = config.compressBudget <= 0 ? 0 : Math.max(1, config.compressBudget / 2);
+        return withBudget(config, config.compressBudget, () -> new HtmlCompressor(profile, createScriptCompressor(config, inlineBudget), createStyleCompressor(config, inlineBudget)), null);
+    }
+    
+    /**
+     * Create the compressor for styles. When the YUI compressor exceeds
+     * the time budget the fast compressor is used instead.
+     * @param config the project configuration.
+     * @return the YUI compressor or the fast compressor.
+     */
+    public static Compressor createStyleCompressor(Config config) {
+        return createStyleCompressor(config, config.compressBudget);
+    }
+    
+    /**
+     * Create the compressor for styles with the given time budget.
+     * @param config the project configuration.
+     * @param budget the time budget in milliseconds, 0 disables the budget.
+     * @return the YUI compressor or the fast compressor.
+     */
+    private static Compressor createStyleCompressor(Config config, long budget) {
+        if(Config.FAST_COMPRESSOR.equals(config.styleCompressor)) {
+            return withBudget(config, budget, () -> new CachingCompressor(new FastCssCompressor()), null);
+        }
+        return withBudget(config, budget, () -> new CachingCompressor(new CssCompressor()), new FastCssCompressor());
+    }
+    
+    /**
+     * Give a compressor a time budget. The compressions which ran out of 
+     * time are counted per project.
+     * @param config the project configuration.
+     * @param budget the time budget in milliseconds, 0 disables the budget.
+     * @param compressor creates the compressor.
+     * @param fallback the compressor used when the budget is exceeded, null to keep the input.
+     * @return the compressor with a time budget or without when it is disabled.
+     */
+    private static Compressor withBudget(Config config, long budget, Supplier<Compressor> compressor, Compressor fallback) {
+        if(budget <= 0) {
+            return compressor.get();
+        }
+        return new TimeBudgetCompressor(compressor, fallback, budget, config.abandonedCompressions);
+    }
+}
@@ -34,14 +34,20 @@ package dpt.statapp.compressor;
 import com.googlecode.htmlcompressor.compressor.YuiCssCompressor;
 
 /**
- * Compress CSS sources.
+ * Compress CSS sources. The YUI compressor is only loaded when the first 
+ * source is compressed.
  * @author Daan Pape
  */
 public class CssCompressor implements Compressor {
+    
+    /* Created on first use */
+    private YuiCssCompressor comp;
 
     @Override
     public String compress(String input) {
-        YuiCssCompressor comp = new YuiCssCompressor();
+        if(comp == null) {
+            comp = new YuiCssCompressor();
+        }
         return comp.compress(input);
     }
     
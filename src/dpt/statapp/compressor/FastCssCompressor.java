@@ -0,0 +1,523 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   FastCssCompressor.java
+ * Created on October 19, 2026, 05:50 PM
+ */
+package dpt.statapp.compressor;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compress CSS sources in a single pass over the input. Comments, needless
+ * whitespace, needless semicolons and empty rules are removed, numbers and 
+ * hexadecimal colors are shortened. Strings and url() values are copied as
+ * is and the whitespace around + and - in declarations is kept for calc().
+ * Comments starting with '/*!' are kept as licence. Unlike the YUI 
+ * compressor the time needed grows linearly with the size of the style.
+ * @author Daan Pape
+ */
+public class FastCssCompressor implements Compressor {
+    
+    /* The at-rules which contain rules instead of declarations */
+    private static final Set<String> RULE_BLOCKS = new HashSet<>(Arrays.asList(
+            "media", "supports", "document", "layer", "container", "keyframes", "scope"));
+    
+    /* The length units which may be left out of a zero length */
+    private static final Set<String> LENGTH_UNITS = new HashSet<>(Arrays.asList(
+            "px", "em", "rem", "ex", "ch", "in", "cm", "mm", "pc", "pt", "vw", "vh", "vmin", "vmax"));
+
+    @Override
+    public String compress(String input) {
+        return new Scanner(input).run();
+    }
+    
+    /**
+     * The state of a single compression.
+     */
+    private static class Scanner {
+        private final String in;
+        private final int length;
+        private final StringBuilder out;
+        private int pos = 0;
+        
+        /* True when whitespace was skipped after the last written character */
+        private boolean pendingSpace = false;
+        
+        /* The output position where the current selector or at-rule starts */
+        private int preludeStart = 0;
+        
+        /* For every open block: true when it holds declarations, and where its rule starts */
+        private final Deque<Boolean> declarationBlocks = new ArrayDeque<>();
+        private final Deque<Integer> ruleStarts = new ArrayDeque<>();
+        
+        /* True inside a declaration value which may be shortened */
+        private boolean inValue = false;
+        
+        /* True when the unit of a zero length must be kept */
+        private boolean keepUnits = false;
+        
+        /* The depth of the open parentheses */
+        private int parenDepth = 0;
+        
+        Scanner(String in) {
+            this.in = in;
+            this.length = in.length();
+            this.out = new StringBuilder(in.length());
+        }
+        
+        /**
+         * Compress the complete input.
+         * @return the compressed style.
+         */
+        String run() {
+            while(pos < length) {
+                char c = in.charAt(pos);
+                
+                if(isWhitespace(c)) {
+                    pendingSpace = true;
+                    ++pos;
+                } else if(c == '/' && next(1) == '*') {
+                    comment();
+                } else if(c == '"' || c == '\'') {
+                    separate(c);
+                    string(c);
+                } else if(isWordPart(c)) {
+                    separate(c);
+                    word();
+                } else {
+                    punctuator(c);
+                }
+            }
+            
+            return out.toString();
+        }
+        
+        /**
+         * Get a character ahead of the current position.
+         * @param offset the offset from the current position.
+         * @return the character or 0 after the end of the input.
+         */
+        private char next(int offset) {
+            return pos + offset < length ? in.charAt(pos + offset) : 0;
+        }
+        
+        /**
+         * Get the last written character.
+         * @return the character or 0 when nothing is written.
+         */
+        private char lastChar() {
+            return out.length() > 0 ? out.charAt(out.length() - 1) : 0;
+        }
+        
+        /**
+         * Check if the current block holds declarations.
+         * @return true in a declaration block.
+         */
+        private boolean inDeclarations() {
+            return !declarationBlocks.isEmpty() && declarationBlocks.peek();
+        }
+        
+        /**
+         * Write a space before the next token when the skipped whitespace 
+         * is needed to separate it from the last written character.
+         * @param c the first character of the next token.
+         */
+        private void separate(char c) {
+            if(pendingSpace && spaceNeeded(lastChar(), c)) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+        }
+        
+        /**
+         * Check if whitespace between two characters is significant.
+         * @param last the last written character. 
+         * @param c the first character of the next token.
+         * @return true when a space must be kept.
+         */
+        private boolean spaceNeeded(char last, char c) {
+            if(last == 0 || last == '{' || last == '}' || last == ';' || last == ',' || last == '!' || last == '(' || last == '[') {
+                return false;
+            }
+            if(c == '{' || c == '}' || c == ';' || c == ',' || c == '!' || c == ')' || c == ']') {
+                return false;
+            }
+            
+            boolean selector = !inDeclarations() && parenDepth == 0;
+            if(last == ':') {
+                return false;
+            }
+            if(selector && (last == '>' || last == '~' || last == '+' || c == '>' || c == '~' || c == '+')) {
+                return false;
+            }
+            if(c == ':') {
+                /* 'a :hover' differs from 'a:hover' */
+                return selector;
+            }
+            if(last == ')') {
+                return isWordPart(c) || c == '(';
+            }
+            if(c == '(') {
+                /* 'and (' must not become a function */
+                return isWordPart(last);
+            }
+            return true;
+        }
+        
+        /**
+         * Skip a comment, a licence comment is copied.
+         */
+        private void comment() {
+            int end = in.indexOf("*/", pos + 2);
+            end = end == -1 ? length : end + 2;
+            
+            if(next(2) == '!') {
+                separate('/');
+                boolean atPrelude = preludeStart == out.length();
+                out.append(in, pos, end);
+                if(atPrelude) {
+                    preludeStart = out.length();
+                }
+            } else {
+                pendingSpace = true;
+            }
+            pos = end;
+        }
+        
+        /**
+         * Copy a string including its quotes.
+         * @param quote the quote character.
+         */
+        private void string(char quote) {
+            int start = pos++;
+            while(pos < length) {
+                char c = in.charAt(pos++);
+                if(c == '\\') {
+                    ++pos;
+                } else if(c == quote || c == '\n') {
+                    break;
+                }
+            }
+            pos = Math.min(pos, length);
+            out.append(in, start, pos);
+        }
+        
+        /**
+         * Copy a word, which is an identifier, number, hash or unicode range.
+         * Numbers and colors in declaration values are shortened. 
+         */
+        private void word() {
+            int start = pos;
+            while(pos < length && isWordPart(in.charAt(pos))) {
+                if(in.charAt(pos) == '\\') {
+                    ++pos;
+                }
+                ++pos;
+            }
+            pos = Math.min(pos, length);
+            String word = in.substring(start, pos);
+            
+            /* The contents of url() is copied without changes */
+            if(pos < length && in.charAt(pos) == '(' && word.equalsIgnoreCase("url")) {
+                url(word);
+                return;
+            }
+            
+            if(inDeclarations() && inValue) {
+                if(word.charAt(0) == '#') {
+                    word = shortenColor(word);
+                } else {
+                    word = shortenNumber(word, parenDepth == 0 && !keepUnits);
+                }
+            }
+            out.append(word);
+        }
+        
+        /**
+         * Copy an url() value, only the whitespace around the url is removed.
+         * @param name the function name as written.
+         */
+        private void url(String name) {
+            int end = pos + 1;
+            char quote = 0;
+            while(end < length) {
+                char c = in.charAt(end);
+                if(c == '\\') {
+                    ++end;
+                } else if(quote != 0) {
+                    if(c == quote) {
+                        quote = 0;
+                    }
+                } else if(c == '"' || c == '\'') {
+                    quote = c;
+                } else if(c == ')') {
+                    break;
+                }
+                ++end;
+            }
+            end = Math.min(end, length);
+            
+            out.append(name).append('(').append(in.substring(pos + 1, end).trim());
+            if(end < length) {
+                out.append(')');
+                ++end;
+            }
+            pos = end;
+        }
+        
+        /**
+         * Write a punctuator and track the blocks, declarations and 
+         * parentheses. 
+         * @param c the punctuator.
+         */
+        private void punctuator(char c) {
+            ++pos;
+            switch(c) {
+                case '{':
+                    separate(c);
+                    declarationBlocks.push(holdsDeclarations());
+                    ruleStarts.push(preludeStart);
+                    out.append(c);
+                    preludeStart = out.length();
+                    inValue = false;
+                    parenDepth = 0;
+                    return;
+                case '}':
+                    pendingSpace = false;
+                    if(lastChar() == ';') {
+                        out.setLength(out.length() - 1);
+                    }
+                    int ruleStart = ruleStarts.isEmpty() ? 0 : ruleStarts.pop();
+                    if(!declarationBlocks.isEmpty()) {
+                        declarationBlocks.pop();
+                    }
+                    if(lastChar() == '{') {
+                        /* Drop the empty rule */
+                        out.setLength(ruleStart);
+                    } else {
+                        out.append(c);
+                    }
+                    preludeStart = out.length();
+                    inValue = false;
+                    parenDepth = 0;
+                    return;
+                case ';':
+                    pendingSpace = false;
+                    if(parenDepth == 0) {
+                        inValue = false;
+                        char last = lastChar();
+                        if(last == ';' || last == '{' || (last == 0 && declarationBlocks.isEmpty())) {
+                            return;
+                        }
+                    }
+                    out.append(c);
+                    if(parenDepth == 0) {
+                        preludeStart = out.length();
+                    }
+                    return;
+                case ':':
+                    separate(c);
+                    if(inDeclarations() && parenDepth == 0) {
+                        /* Custom properties can be used anywhere, for example in calc() */
+                        String property = out.substring(preludeStart).trim();
+                        inValue = !property.equalsIgnoreCase("unicode-range");
+                        keepUnits = property.startsWith("--");
+                    }
+                    break;
+                case '(':
+                    separate(c);
+                    ++parenDepth;
+                    break;
+                case ')':
+                    separate(c);
+                    parenDepth = Math.max(0, parenDepth - 1);
+                    break;
+                default:
+                    separate(c);
+            }
+            out.append(c);
+        }
+        
+        /**
+         * Check if the block opened after the current prelude holds 
+         * declarations instead of rules.
+         * @return true for a declaration block.
+         */
+        private boolean holdsDeclarations() {
+            if(out.length() <= preludeStart || out.charAt(preludeStart) != '@') {
+                return true;
+            }
+            
+            int end = preludeStart + 1;
+            while(end < out.length() && isWordPart(out.charAt(end))) {
+                ++end;
+            }
+            String name = out.substring(preludeStart + 1, end).toLowerCase(Locale.ROOT);
+            
+            /* Vendor prefixed at-rules like @-webkit-keyframes */
+            if(name.startsWith("-")) {
+                int dash = name.indexOf('-', 1);
+                name = dash == -1 ? name : name.substring(dash + 1);
+            }
+            return !RULE_BLOCKS.contains(name);
+        }
+    }
+    
+    /**
+     * Shorten a hexadecimal color, for example #AABBCC to #abc. Other 
+     * words starting with a hash are returned unchanged. 
+     * @param word the word starting with a hash.
+     * @return the shortened color.
+     */
+    static String shortenColor(String word) {
+        int digits = word.length() - 1;
+        if(digits != 3 && digits != 4 && digits != 6 && digits != 8) {
+            return word;
+        }
+        for(int i = 1; i < word.length(); ++i) {
+            if(Character.digit(word.charAt(i), 16) == -1) {
+                return word;
+            }
+        }
+        
+        String color = word.toLowerCase(Locale.ROOT);
+        if(digits == 6 || digits == 8) {
+            StringBuilder shortColor = new StringBuilder("#");
+            for(int i = 1; i < color.length(); i += 2) {
+                if(color.charAt(i) != color.charAt(i + 1)) {
+                    return color;
+                }
+                shortColor.append(color.charAt(i));
+            }
+            return shortColor.toString();
+        }
+        return color;
+    }
+    
+    /**
+     * Shorten a number with an optional unit, for example 0.50em to .5em
+     * and 0px to 0. Other words are returned unchanged. 
+     * @param word the word.
+     * @param dropUnit true when the length unit of zero may be dropped.
+     * @return the shortened number.
+     */
+    static String shortenNumber(String word, boolean dropUnit) {
+        int i = 0;
+        String sign = "";
+        if(word.charAt(0) == '-' || word.charAt(0) == '+') {
+            sign = word.substring(0, 1);
+            i = 1;
+        }
+        
+        int intStart = i;
+        while(i < word.length() && Character.isDigit(word.charAt(i))) {
+            ++i;
+        }
+        String integer = word.substring(intStart, i);
+        
+        String fraction = "";
+        if(i < word.length() && word.charAt(i) == '.') {
+            int fracStart = ++i;
+            while(i < word.length() && Character.isDigit(word.charAt(i))) {
+                ++i;
+            }
+            fraction = word.substring(fracStart, i);
+        }
+        
+        /* Not a number, or one with an exponent which is left alone */
+        if(integer.isEmpty() && fraction.isEmpty()) {
+            return word;
+        }
+        String unit = word.substring(i);
+        if(!unit.isEmpty() && !unit.equals("%") && !isUnit(unit)) {
+            return word;
+        }
+        
+        /* Strip the needless zeros */
+        int intZeros = 0;
+        while(intZeros < integer.length() - 1 && integer.charAt(intZeros) == '0') {
+            ++intZeros;
+        }
+        integer = integer.substring(intZeros);
+        int fracEnd = fraction.length();
+        while(fracEnd > 0 && fraction.charAt(fracEnd - 1) == '0') {
+            --fracEnd;
+        }
+        fraction = fraction.substring(0, fracEnd);
+        
+        boolean zero = integer.replace("0", "").isEmpty() && fraction.isEmpty();
+        if(zero) {
+            return dropUnit && LENGTH_UNITS.contains(unit.toLowerCase(Locale.ROOT)) ? "0" : "0" + unit;
+        }
+        if(integer.equals("0") && !fraction.isEmpty()) {
+            integer = "";
+        }
+        return sign + integer + (fraction.isEmpty() ? "" : "." + fraction) + unit;
+    }
+    
+    /**
+     * Check if a word is a unit, a sequence of letters.
+     * @param unit the word after the number.
+     * @return true for a unit.
+     */
+    private static boolean isUnit(String unit) {
+        for(int i = 0; i < unit.length(); ++i) {
+            char c = unit.charAt(i);
+            if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Check for CSS whitespace.
+     * @param c the character to check.
+     * @return true for whitespace.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+    
+    /**
+     * Check for a character which can be part of an identifier, number, 
+     * hash or unicode range. A backslash starts an escape.
+     * @param c the character to check.
+     * @return true for a word character.
+     */
+    private static boolean isWordPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' 
+                || c == '#' || c == '.' || c == '%' || c == '@' || c == '\\' || c > 127;
+    }
+}
@@ -0,0 +1,402 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   FastJavascriptCompressor.java
+ * Created on October 19, 2026, 04:55 PM
+ */
+package dpt.statapp.compressor;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compress Javascript sources in a single pass without building a syntax
+ * tree. Comments and whitespace are removed, identifiers are never renamed.
+ * A line break is kept wherever removing it could change automatic 
+ * semicolon insertion, comments starting with '/*!' are kept as licence. 
+ * The output is a bit larger than the YUI output but it is created many 
+ * times faster, which makes it suited for preview builds.
+ * @author Daan Pape
+ */
+public class FastJavascriptCompressor implements Compressor {
+    
+    /* The kinds of the last token written to the output */
+    private static final int NONE = 0;
+    private static final int WORD = 1;
+    private static final int NUMBER = 2;
+    private static final int LITERAL = 3;
+    private static final int REGEX = 4;
+    private static final int PUNCTUATOR = 5;
+    
+    /* Keywords after which a slash starts a regular expression */
+    private static final Set<String> REGEX_KEYWORDS = new HashSet<>(Arrays.asList(
+            "return", "typeof", "case", "do", "else", "in", "instanceof", "new", 
+            "delete", "void", "throw", "yield", "await", "of"));
+
+    @Override
+    public String compress(String input) {
+        return new Scanner(input).run();
+    }
+    
+    /**
+     * The state of a single compression.
+     */
+    private static class Scanner {
+        private final String in;
+        private final int length;
+        private final StringBuilder out;
+        private int pos = 0;
+        
+        /* The last written token and the whitespace skipped after it */
+        private int lastKind = NONE;
+        private String lastWord = null;
+        private boolean pendingSpace = false;
+        private boolean pendingNewline = false;
+        
+        /* The open braces and the brace depths at which template literals continue */
+        private int braceDepth = 0;
+        private final Deque<Integer> templates = new ArrayDeque<>();
+        
+        Scanner(String in) {
+            this.in = in;
+            this.length = in.length();
+            this.out = new StringBuilder(in.length());
+        }
+        
+        /**
+         * Compress the complete input. 
+         * @return the compressed source.
+         */
+        String run() {
+            while(pos < length) {
+                char c = in.charAt(pos);
+                
+                if(c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029') {
+                    pendingNewline = true;
+                    ++pos;
+                } else if(isWhitespace(c)) {
+                    pendingSpace = true;
+                    ++pos;
+                } else if(c == '/' && next(1) == '/') {
+                    /* The line break ending the comment is handled as whitespace */
+                    while(pos < length && !isLineTerminator(in.charAt(pos))) {
+                        ++pos;
+                    }
+                } else if(c == '/' && next(1) == '*') {
+                    blockComment();
+                } else if(c == '/' && regexAllowed()) {
+                    regex();
+                } else if(c == '"' || c == '\'') {
+                    separate(c);
+                    string(c);
+                    lastKind = LITERAL;
+                } else if(c == '`') {
+                    separate(c);
+                    out.append(c);
+                    ++pos;
+                    template();
+                } else if(isDigit(c) || (c == '.' && isDigit(next(1)))) {
+                    separate(c);
+                    number();
+                } else if(isIdentifierPart(c)) {
+                    separate(c);
+                    int start = pos;
+                    while(pos < length && isIdentifierPart(in.charAt(pos))) {
+                        ++pos;
+                    }
+                    out.append(in, start, pos);
+                    lastKind = WORD;
+                    lastWord = in.substring(start, pos);
+                } else if(c == '}' && !templates.isEmpty() && templates.peek() == braceDepth - 1) {
+                    /* End of a template substitution, continue with the template */
+                    separate(c);
+                    templates.pop();
+                    --braceDepth;
+                    out.append(c);
+                    ++pos;
+                    template();
+                } else {
+                    separate(c);
+                    if(c == '{') {
+                        ++braceDepth;
+                    } else if(c == '}') {
+                        --braceDepth;
+                    }
+                    out.append(c);
+                    ++pos;
+                    lastKind = PUNCTUATOR;
+                }
+            }
+            
+            return out.toString();
+        }
+        
+        /**
+         * Get a character ahead of the current position.
+         * @param offset the offset from the current position.
+         * @return the character or 0 after the end of the input.
+         */
+        private char next(int offset) {
+            return pos + offset < length ? in.charAt(pos + offset) : 0;
+        }
+        
+        /**
+         * Write the whitespace which is still needed before the next token.
+         * @param c the first character of the next token.
+         */
+        private void separate(char c) {
+            if(pendingNewline && newlineNeeded(c)) {
+                out.append('\n');
+            } else if((pendingSpace || pendingNewline) && spaceNeeded(c)) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            pendingNewline = false;
+        }
+        
+        /**
+         * Check if a removed line break could end a statement. 
+         * @param c the first character of the next token.
+         * @return true when the line break must be kept.
+         */
+        private boolean newlineNeeded(char c) {
+            boolean ends = lastKind == WORD || lastKind == NUMBER || lastKind == LITERAL || lastKind == REGEX;
+            if(lastKind == PUNCTUATOR) {
+                char last = lastChar(1);
+                ends = last == ')' || last == ']' || last == '}' || ((last == '+' || last == '-') && lastChar(2) == last);
+            }
+            
+            return ends && (isIdentifierPart(c) || c == '{' || c == '[' || c == '(' || c == '"' || c == '\'' 
+                    || c == '`' || c == '+' || c == '-' || c == '!' || c == '~' || c == '/' || c == '#');
+        }
+        
+        /**
+         * Check if two tokens would merge without whitespace in between.
+         * @param c the first character of the next token.
+         * @return true when a space must be kept.
+         */
+        private boolean spaceNeeded(char c) {
+            char last = lastChar(1);
+            return ((lastKind == WORD || lastKind == NUMBER || lastKind == REGEX) && isIdentifierPart(c))
+                    || (lastKind == NUMBER && c == '.')
+                    || (lastKind == PUNCTUATOR && (last == '+' || last == '-' || last == '/') && c == last)
+                    || (lastKind == PUNCTUATOR && last == '<' && c == '!')
+                    || (lastKind == PUNCTUATOR && last == '-' && c == '>');
+        }
+        
+        /**
+         * Get a character at the end of the output.
+         * @param offset 1 for the last character. 
+         * @return the character or 0 when the output is too short.
+         */
+        private char lastChar(int offset) {
+            return out.length() >= offset ? out.charAt(out.length() - offset) : 0;
+        }
+        
+        /**
+         * Check if a slash at the current position starts a regular expression
+         * instead of being a division, based on the previous token.
+         * @return true for a regular expression.
+         */
+        private boolean regexAllowed() {
+            switch(lastKind) {
+                case NONE:
+                    return true;
+                case WORD:
+                    return REGEX_KEYWORDS.contains(lastWord);
+                case PUNCTUATOR:
+                    char last = lastChar(1);
+                    if((last == '+' || last == '-') && lastChar(2) == last) {
+                        return false;
+                    }
+                    return last != ')' && last != ']';
+                default:
+                    return false;
+            }
+        }
+        
+        /**
+         * Skip a block comment, a licence comment is copied.
+         */
+        private void blockComment() {
+            int end = in.indexOf("*/", pos + 2);
+            end = end == -1 ? length : end + 2;
+            
+            if(next(2) == '!') {
+                separate('/');
+                out.append(in, pos, end);
+                if(lastKind != NONE) {
+                    pendingSpace = true;
+                }
+            } else {
+                for(int i = pos; i < end; ++i) {
+                    if(isLineTerminator(in.charAt(i))) {
+                        pendingNewline = true;
+                        break;
+                    }
+                }
+                pendingSpace = true;
+            }
+            pos = end;
+        }
+        
+        /**
+         * Copy a regular expression literal without its flags, a slash
+         * inside a character class does not end it.
+         */
+        private void regex() {
+            separate('/');
+            int start = pos++;
+            boolean inClass = false;
+            while(pos < length) {
+                char c = in.charAt(pos++);
+                if(c == '\\') {
+                    ++pos;
+                } else if(c == '[') {
+                    inClass = true;
+                } else if(c == ']') {
+                    inClass = false;
+                } else if((c == '/' && !inClass) || isLineTerminator(c)) {
+                    break;
+                }
+            }
+            pos = Math.min(pos, length);
+            out.append(in, start, pos);
+            lastKind = REGEX;
+        }
+        
+        /**
+         * Copy a string literal including its quotes.
+         * @param quote the quote character.
+         */
+        private void string(char quote) {
+            int start = pos++;
+            while(pos < length) {
+                char c = in.charAt(pos++);
+                if(c == '\\') {
+                    /* A CRLF line continuation is escaped as a whole */
+                    if(pos + 1 < length && in.charAt(pos) == '\r' && in.charAt(pos + 1) == '\n') {
+                        ++pos;
+                    }
+                    ++pos;
+                } else if(c == quote || c == '\n' || c == '\r') {
+                    break;
+                }
+            }
+            pos = Math.min(pos, length);
+            out.append(in, start, pos);
+        }
+        
+        /**
+         * Copy a template literal up to and including its end or the start
+         * of the next substitution.
+         */
+        private void template() {
+            int start = pos;
+            while(pos < length) {
+                char c = in.charAt(pos++);
+                if(c == '\\') {
+                    ++pos;
+                } else if(c == '`') {
+                    break;
+                } else if(c == '$' && pos < length && in.charAt(pos) == '{') {
+                    ++pos;
+                    templates.push(braceDepth++);
+                    out.append(in, start, pos);
+                    lastKind = PUNCTUATOR;
+                    return;
+                }
+            }
+            pos = Math.min(pos, length);
+            out.append(in, start, pos);
+            lastKind = LITERAL;
+        }
+        
+        /**
+         * Copy a numeric literal, including the sign of an exponent. 
+         */
+        private void number() {
+            int start = pos;
+            boolean hex = in.charAt(pos) == '0' && (next(1) == 'x' || next(1) == 'X');
+            while(pos < length) {
+                char c = in.charAt(pos);
+                if(isIdentifierPart(c) || c == '.') {
+                    ++pos;
+                } else if((c == '+' || c == '-') && !hex && (in.charAt(pos - 1) == 'e' || in.charAt(pos - 1) == 'E')) {
+                    ++pos;
+                } else {
+                    break;
+                }
+            }
+            out.append(in, start, pos);
+            lastKind = NUMBER;
+        }
+    }
+    
+    /**
+     * Check for a line terminator, which can end a statement.
+     * @param c the character to check.
+     * @return true for a line terminator.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+    }
+    
+    /**
+     * Check for whitespace other than a line terminator. 
+     * @param c the character to check.
+     * @return true for whitespace.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f' || c == '\u00A0' || c == '\uFEFF' 
+                || (c > 127 && Character.isSpaceChar(c));
+    }
+    
+    /**
+     * Check for a decimal digit.
+     * @param c the character to check.
+     * @return true for a digit.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    /**
+     * Check for a character which can be part of an identifier, keyword or
+     * number. A backslash is included for unicode escapes in identifiers.
+     * @param c the character to check.
+     * @return true for an identifier character.
+     */
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '$' 
+                || c == '\\' || (c > 127 && !isWhitespace(c) && !isLineTerminator(c));
+    }
+}
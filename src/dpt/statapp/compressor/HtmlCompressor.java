@@ -31,17 +31,434 @@
  */
 package dpt.statapp.compressor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
 /**
- * Compress HTML sources.
+ * Compress HTML sources in a single pass according to a profile. The 
+ * contents of pre, textarea, script and style elements is never changed 
+ * except that inline scripts and styles can be compressed. 
  * @author Daan Pape
  */
 public class HtmlCompressor implements Compressor {
+    
+    /* The elements whose contents is copied as is */
+    private static final Set<String> RAW_ELEMENTS = new HashSet<>(Arrays.asList(
+            "pre", "textarea", "script", "style"));
+    
+    /* The block level elements, next to which whitespace is not rendered. Elements
+       which render nothing, like script, style and template, are left out: in
+       running text the whitespace around them still separates the words */
+    private static final Set<String> BLOCK_ELEMENTS = new HashSet<>(Arrays.asList(
+            "html", "head", "body", "div", "p", "ul", "ol", "li", "dl", "dt", "dd", "table", "thead", 
+            "tbody", "tfoot", "tr", "td", "th", "caption", "colgroup", "col", "section", "article", 
+            "aside", "header", "footer", "nav", "main", "h1", "h2", "h3", "h4", "h5", "h6", "hr", "br", 
+            "form", "fieldset", "legend", "option", "optgroup", "figure", "figcaption", "blockquote", 
+            "pre", "address", "details", "summary", "!doctype"));
+    
+    /* The script types which are Javascript */
+    private static final Set<String> SCRIPT_TYPES = new HashSet<>(Arrays.asList(
+            "text/javascript", "application/javascript", "text/ecmascript", "module"));
+    
+    private final HtmlProfile profile;
+    private final Compressor scriptCompressor;
+    private final Compressor styleCompressor;
+    
+    /**
+     * Construct a new HtmlCompressor. 
+     * @param profile the compression profile. 
+     * @param scriptCompressor compresses the inline scripts when the profile asks for it.
+     * @param styleCompressor compresses the inline styles when the profile asks for it.
+     */
+    public HtmlCompressor(HtmlProfile profile, Compressor scriptCompressor, Compressor styleCompressor) {
+        this.profile = profile;
+        this.scriptCompressor = scriptCompressor;
+        this.styleCompressor = styleCompressor;
+    }
 
     @Override
     public String compress(String input) {
-        com.googlecode.htmlcompressor.compressor.HtmlCompressor comp = new com.googlecode.htmlcompressor.compressor.HtmlCompressor();
-        comp.setRemoveComments(false);
-        return comp.compress(input);
+        return compress(input, "a page");
     }
     
+    @Override
+    public String compress(String input, String name) {
+        if(profile == HtmlProfile.DEV) {
+            return input;
+        }
+        return new Scanner(input, name).run();
+    }
+    
+    /**
+     * An attribute of a tag.
+     */
+    private static class Attribute {
+        String name;
+        String value = null;
+        char quote = 0;
+    }
+    
+    /**
+     * The state of a single compression.
+     */
+    private class Scanner {
+        private final String in;
+        private final int length;
+        private final StringBuilder out;
+        private int pos = 0;
+        
+        /* The name of the page, used for reporting */
+        private final String page;
+        
+        /* The name of the last tag, whitespace after a block tag is not rendered */
+        private String lastTag = "html";
+        
+        /* True inside the head, where no whitespace is rendered */
+        private boolean inHead = false;
+        
+        Scanner(String in, String page) {
+            this.in = in;
+            this.page = page;
+            this.length = in.length();
+            this.out = new StringBuilder(in.length());
+        }
+        
+        /**
+         * Compress the complete input. 
+         * @return the compressed HTML.
+         */
+        String run() {
+            int textStart = 0;
+            while(pos < length) {
+                int open = in.indexOf('<', pos);
+                if(open == -1) {
+                    break;
+                }
+                pos = open;
+                
+                if(in.startsWith("<!--", pos)) {
+                    text(textStart, pos, null);
+                    comment();
+                    textStart = pos;
+                } else if(isTagStart()) {
+                    String name = tagName();
+                    text(textStart, pos, name);
+                    tag();
+                    textStart = pos;
+                } else if(in.startsWith("<!", pos) || in.startsWith("<?", pos)) {
+                    text(textStart, pos, "!doctype");
+                    int end = in.indexOf('>', pos);
+                    pos = end == -1 ? length : end + 1;
+                    out.append(in, open, pos);
+                    lastTag = "!doctype";
+                    textStart = pos;
+                } else {
+                    /* A lone '<' is text */
+                    ++pos;
+                }
+            }
+            text(textStart, length, "html");
+            
+            return out.toString().trim();
+        }
+        
+        /**
+         * Check if a tag starts at the current position.
+         * @return true for an opening or closing tag. 
+         */
+        private boolean isTagStart() {
+            int i = pos + 1;
+            if(i < length && in.charAt(i) == '/') {
+                ++i;
+            }
+            return i < length && Character.isLetter(in.charAt(i));
+        }
+        
+        /**
+         * Get the lower case name of the tag at the current position. 
+         * @return the tag name without the slash of a closing tag.
+         */
+        private String tagName() {
+            int start = in.charAt(pos + 1) == '/' ? pos + 2 : pos + 1;
+            int end = start;
+            while(end < length && isNamePart(in.charAt(end))) {
+                ++end;
+            }
+            return in.substring(start, end).toLowerCase(Locale.ROOT);
+        }
+        
+        /**
+         * Write text with collapsed whitespace. The whitespace next to block
+         * tags and in the head is removed when the profile asks for it. 
+         * @param start the start of the text. 
+         * @param end the end of the text.
+         * @param nextTag the name of the tag after the text, null for a comment.
+         */
+        private void text(int start, int end, String nextTag) {
+            if(start >= end) {
+                return;
+            }
+            if(!profile.collapseWhitespace()) {
+                out.append(in, start, end);
+                return;
+            }
+            
+            boolean head = profile.removeBlockWhitespace() && inHead;
+            boolean trimStart = head || (profile.removeBlockWhitespace() && BLOCK_ELEMENTS.contains(lastTag) && out.length() > 0 && out.charAt(out.length() - 1) == '>');
+            boolean trimEnd = head || (profile.removeBlockWhitespace() && nextTag != null && BLOCK_ELEMENTS.contains(nextTag));
+            
+            /* A removed comment can leave whitespace on both sides */
+            int mark = out.length();
+            boolean space = false;
+            if(mark > 0 && out.charAt(mark - 1) == ' ') {
+                trimStart = true;
+            }
+            for(int i = start; i < end; ++i) {
+                char c = in.charAt(i);
+                if(isWhitespace(c)) {
+                    space = true;
+                } else {
+                    if(space && !(trimStart && out.length() == mark)) {
+                        out.append(' ');
+                    }
+                    space = false;
+                    out.append(c);
+                }
+            }
+            if(space && !trimEnd && !(trimStart && out.length() == mark)) {
+                out.append(' ');
+            }
+        }
+        
+        /**
+         * Copy or remove a comment.
+         */
+        private void comment() {
+            int end = in.indexOf("-->", pos + 4);
+            end = end == -1 ? length : end + 3;
+            
+            boolean keep = in.startsWith("<!--[if", pos) || in.startsWith("<!--<![endif]", pos) || in.startsWith("<!--!", pos);
+            if(keep || !profile.removeComments()) {
+                out.append(in, pos, end);
+            }
+            pos = end;
+        }
+        
+        /**
+         * Write a tag with collapsed whitespace and the contents of the raw
+         * elements.
+         */
+        private void tag() {
+            int start = pos;
+            boolean closing = in.charAt(pos + 1) == '/';
+            String name = tagName();
+            pos += (closing ? 2 : 1) + name.length();
+            
+            /* Read the attributes */
+            List<Attribute> attributes = new ArrayList<>();
+            boolean selfClosing = false;
+            while(pos < length) {
+                char c = in.charAt(pos);
+                if(c == '>') {
+                    ++pos;
+                    break;
+                } else if(c == '/' && pos + 1 < length && in.charAt(pos + 1) == '>') {
+                    selfClosing = true;
+                    pos += 2;
+                    break;
+                } else if(isWhitespace(c) || c == '/') {
+                    ++pos;
+                } else {
+                    attributes.add(attribute());
+                }
+            }
+            
+            /* Write the tag */
+            out.append('<');
+            if(closing) {
+                out.append('/');
+            }
+            out.append(in, start + (closing ? 2 : 1), start + (closing ? 2 : 1) + name.length());
+            for(int i = 0; i < attributes.size(); ++i) {
+                Attribute attribute = attributes.get(i);
+                out.append(' ').append(attribute.name);
+                if(attribute.value != null) {
+                    out.append('=');
+                    boolean last = i == attributes.size() - 1;
+                    if(profile.removeQuotes() && !(last && selfClosing) && canRemoveQuotes(attribute.value)) {
+                        out.append(attribute.value);
+                    } else {
+                        char quote = attribute.quote == 0 ? '"' : attribute.quote;
+                        out.append(quote).append(attribute.value).append(quote);
+                    }
+                }
+            }
+            out.append(selfClosing ? "/>" : ">");
+            lastTag = name;
+            if(name.equals("head") || name.equals("body")) {
+                inHead = name.equals("head") && !closing;
+            }
+            
+            if(!closing && !selfClosing && RAW_ELEMENTS.contains(name)) {
+                rawContents(name, attributes);
+            }
+        }
+        
+        /**
+         * Read an attribute at the current position.
+         * @return the attribute.
+         */
+        private Attribute attribute() {
+            Attribute attribute = new Attribute();
+            int start = pos;
+            while(pos < length && !isWhitespace(in.charAt(pos)) && in.charAt(pos) != '=' && in.charAt(pos) != '>' 
+                    && !(in.charAt(pos) == '/' && pos + 1 < length && in.charAt(pos + 1) == '>')) {
+                ++pos;
+            }
+            attribute.name = in.substring(start, pos);
+            
+            int i = skipWhitespace(pos);
+            if(i >= length || in.charAt(i) != '=') {
+                return attribute;
+            }
+            
+            pos = skipWhitespace(i + 1);
+            if(pos < length && (in.charAt(pos) == '"' || in.charAt(pos) == '\'')) {
+                attribute.quote = in.charAt(pos);
+                int end = in.indexOf(attribute.quote, pos + 1);
+                end = end == -1 ? length : end;
+                attribute.value = in.substring(pos + 1, end);
+                pos = Math.min(end + 1, length);
+            } else {
+                start = pos;
+                while(pos < length && !isWhitespace(in.charAt(pos)) && in.charAt(pos) != '>') {
+                    ++pos;
+                }
+                attribute.value = in.substring(start, pos);
+            }
+            return attribute;
+        }
+        
+        /**
+         * Write the contents of a raw element up to its closing tag, inline 
+         * scripts and styles are compressed when the profile asks for it.
+         * @param name the element name.
+         * @param attributes the attributes of the opening tag.
+         */
+        private void rawContents(String name, List<Attribute> attributes) {
+            int end = indexOfIgnoreCase("</" + name, pos);
+            end = end == -1 ? length : end;
+            String contents = in.substring(pos, end);
+            
+            if(profile.compressInline() && !contents.trim().isEmpty()) {
+                String type = value(attributes, "type");
+                if(name.equals("script") && value(attributes, "src") == null && (type == null || SCRIPT_TYPES.contains(type.toLowerCase(Locale.ROOT)))) {
+                    contents = compressInline(scriptCompressor, contents, "an inline script in " + page);
+                } else if(name.equals("style") && (type == null || type.equalsIgnoreCase("text/css"))) {
+                    contents = compressInline(styleCompressor, contents, "an inline style in " + page);
+                }
+            }
+            
+            out.append(contents);
+            pos = end;
+        }
+        
+        /**
+         * Compress an inline script or style, an invalid one is kept as is.
+         * @param compressor the compressor to use.
+         * @param contents the inline script or style.
+         * @param name the description of the inline script or style, used for reporting.
+         * @return the compressed contents.
+         */
+        private String compressInline(Compressor compressor, String contents, String name) {
+            try {
+                return compressor.compress(contents, name);
+            } catch (RuntimeException ex) {
+                return contents;
+            }
+        }
+        
+        /**
+         * Find a string without regard to case.
+         * @param search the lower case string to find.
+         * @param from the position to start searching.
+         * @return the position or -1 when it is not found.
+         */
+        private int indexOfIgnoreCase(String search, int from) {
+            for(int i = from; i + search.length() <= length; ++i) {
+                if(in.regionMatches(true, i, search, 0, search.length())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Skip whitespace.
+         * @param from the position to start at.
+         * @return the position of the first character which is no whitespace.
+         */
+        private int skipWhitespace(int from) {
+            while(from < length && isWhitespace(in.charAt(from))) {
+                ++from;
+            }
+            return from;
+        }
+    }
+    
+    /**
+     * Get the value of an attribute.
+     * @param attributes the attributes of a tag.
+     * @param name the attribute name.
+     * @return the value, an empty string for an attribute without value or null when it is missing.
+     */
+    private static String value(List<Attribute> attributes, String name) {
+        for(Attribute attribute : attributes) {
+            if(attribute.name.equalsIgnoreCase(name)) {
+                return attribute.value == null ? "" : attribute.value;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Check if an attribute value can be written without quotes. 
+     * @param value the attribute value.
+     * @return true when quotes are not needed.
+     */
+    private static boolean canRemoveQuotes(String value) {
+        if(value.isEmpty() || value.endsWith("/")) {
+            return false;
+        }
+        for(int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') 
+                    || c == '-' || c == '_' || c == '.' || c == ':' || c == '/' || c == '#' || c == '%' || c == '?' || c == '&' || c == ',')) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Check for HTML whitespace.
+     * @param c the character to check.
+     * @return true for whitespace.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+    
+    /**
+     * Check for a character which can be part of a tag name.
+     * @param c the character to check.
+     * @return true for a tag name character.
+     */
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_';
+    }
 }
@@ -0,0 +1,118 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   HtmlProfile.java
+ * Created on October 19, 2026, 06:35 PM
+ */
+package dpt.statapp.compressor;
+
+import java.util.Locale;
+
+/**
+ * The named HTML compression profiles. 
+ * @author Daan Pape
+ */
+public enum HtmlProfile {
+    /* Leave the HTML as written, for readable development builds */
+    DEV(false, false, false, false, false),
+    
+    /* Collapse whitespace and tags but keep everything else */
+    SAFE(false, true, false, false, false),
+    
+    /* Also remove comments, whitespace around block tags and quotes, and compress inline scripts and styles */
+    AGGRESSIVE(true, true, true, true, true);
+    
+    private final boolean removeComments;
+    private final boolean collapseWhitespace;
+    private final boolean removeBlockWhitespace;
+    private final boolean removeQuotes;
+    private final boolean compressInline;
+    
+    private HtmlProfile(boolean removeComments, boolean collapseWhitespace, boolean removeBlockWhitespace, boolean removeQuotes, boolean compressInline) {
+        this.removeComments = removeComments;
+        this.collapseWhitespace = collapseWhitespace;
+        this.removeBlockWhitespace = removeBlockWhitespace;
+        this.removeQuotes = removeQuotes;
+        this.compressInline = compressInline;
+    }
+    
+    /**
+     * Remove the comments, except conditional comments and comments 
+     * starting with '<!--!'.
+     * @return true to remove comments.
+     */
+    public boolean removeComments() {
+        return removeComments;
+    }
+    
+    /**
+     * Collapse whitespace in text and tags to a single space.
+     * @return true to collapse whitespace.
+     */
+    public boolean collapseWhitespace() {
+        return collapseWhitespace;
+    }
+    
+    /**
+     * Remove the whitespace next to block tags, where it is not rendered.
+     * @return true to remove the whitespace around block tags.
+     */
+    public boolean removeBlockWhitespace() {
+        return removeBlockWhitespace;
+    }
+    
+    /**
+     * Remove the quotes around attribute values which do not need them.
+     * @return true to remove quotes.
+     */
+    public boolean removeQuotes() {
+        return removeQuotes;
+    }
+    
+    /**
+     * Compress the inline scripts and styles. 
+     * @return true to compress inline scripts and styles.
+     */
+    public boolean compressInline() {
+        return compressInline;
+    }
+    
+    /**
+     * Get a profile by its name. 
+     * @param name the name, for example 'safe'. 
+     * @return the profile or null when there is no profile with this name.
+     */
+    public static HtmlProfile forName(String name) {
+        for(HtmlProfile profile : values()) {
+            if(profile.name().equals(name.trim().toUpperCase(Locale.ROOT))) {
+                return profile;
+            }
+        }
+        return null;
+    }
+}
@@ -34,14 +34,20 @@ package dpt.statapp.compressor;
 import com.googlecode.htmlcompressor.compressor.YuiJavaScriptCompressor;
 
 /**
- * Compress Javascript sources.
+ * Compress Javascript sources. The YUI compressor and Rhino are only loaded
+ * when the first source is compressed.
  * @author Daan Pape
  */
 public class JavascriptCompressor implements Compressor {
+    
+    /* Created on first use */
+    private YuiJavaScriptCompressor comp;
 
     @Override
     public String compress(String input) {
-        YuiJavaScriptCompressor comp = new YuiJavaScriptCompressor();
+        if(comp == null) {
+            comp = new YuiJavaScriptCompressor();
+        }
         return comp.compress(input);
         //return input;
     }
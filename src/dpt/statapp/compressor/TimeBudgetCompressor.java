@@ -0,0 +1,168 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   TimeBudgetCompressor.java
+ * Created on October 19, 2026, 05:40 PM
+ */
+package dpt.statapp.compressor;
+
+import dpt.statapp.compiler.output.ErrorFormatter;
+import dpt.statapp.compiler.output.ErrorType;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Compressor decorator which gives every compression a time budget. When
+ * the compressor fails or runs out of time the fallback compressor is used,
+ * or the input is kept as is when there is none, and a warning names the
+ * asset. A compression which ran out of time can not be stopped, it ends
+ * in the background and a new compressor is used for the next assets.
+ * Once MAX_ABANDONED compressions counted by the same counter, which is 
+ * shared by the compressors of a project, are still running in the 
+ * background every asset goes to the fallback straight away, so stuck 
+ * compressions can not pile up threads and memory.
+ * @author Daan Pape
+ */
+public class TimeBudgetCompressor implements Compressor {
+    
+    /* Runs the compressions, the threads do not keep the compiler running */
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /* The number of abandoned compressions after which the compressor is no longer used */
+    private static final int MAX_ABANDONED = 4;
+    
+    /* Creates the compressor, again after a compression ran out of time */
+    private final Supplier<Compressor> factory;
+    private Compressor compressor;
+    
+    /* The compressor used when the budget is exceeded, null to keep the input */
+    private final Compressor fallback;
+    
+    /* The time budget of a single compression in milliseconds */
+    private final long budget;
+    
+    /* The abandoned compressions which are still running, shared by the compressors of a project */
+    private final AtomicInteger abandoned;
+    
+    /**
+     * Construct a new TimeBudgetCompressor.
+     * @param factory creates the compressor to give a time budget.
+     * @param fallback the compressor used when the budget is exceeded, null to keep the input.
+     * @param budget the time budget of a single compression in milliseconds.
+     * @param abandoned counts the abandoned compressions which are still running.
+     */
+    public TimeBudgetCompressor(Supplier<Compressor> factory, Compressor fallback, long budget, AtomicInteger abandoned) {
+        this.factory = factory;
+        this.compressor = factory.get();
+        this.fallback = fallback;
+        this.budget = budget;
+        this.abandoned = abandoned;
+    }
+
+    @Override
+    public String compress(String input) {
+        return compress(input, "an asset");
+    }
+    
+    @Override
+    public String compress(String input, String name) {
+        if(abandoned.get() >= MAX_ABANDONED) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Skipping the compressor for %s as %d compressions which ran out of time are still running, %s", name, abandoned.get(), describeFallback());
+            return compressFallback(input, name);
+        }
+        
+        long start = System.nanoTime();
+        Compressor current = compressor;
+        
+        /* 0 while running, 1 when finished and 2 when abandoned */
+        AtomicInteger state = new AtomicInteger();
+        Future<String> result = WORKERS.submit(() -> {
+            try {
+                return current.compress(input, name);
+            } finally {
+                if(!state.compareAndSet(0, 1)) {
+                    abandoned.decrementAndGet();
+                }
+            }
+        });
+        
+        try {
+            return result.get(budget, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            result.cancel(true);
+            if(state.compareAndSet(0, 2)) {
+                abandoned.incrementAndGet();
+            }
+            compressor = factory.get();
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Compressing %s took %d ms, more than the budget of %d ms, %s", name, (System.nanoTime() - start) / 1000000, budget, describeFallback());
+        } catch (ExecutionException ex) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Compressing %s failed after %d ms (%s), %s", name, (System.nanoTime() - start) / 1000000, ex.getCause(), describeFallback());
+        } catch (InterruptedException ex) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        
+        return compressFallback(input, name);
+    }
+    
+    /**
+     * Compress an asset with the fallback compressor.
+     * @param input the asset contents.
+     * @param name the asset name for the warnings.
+     * @return the compressed asset, or the input when there is no fallback.
+     */
+    private String compressFallback(String input, String name) {
+        if(fallback == null) {
+            return input;
+        }
+        try {
+            return fallback.compress(input, name);
+        } catch (RuntimeException ex) {
+            ErrorFormatter.writeFormattedStringErrorLn(ErrorType.WARNING, "Compressing %s with %s failed (%s), it is not compressed", name, fallback.getClass().getSimpleName(), ex);
+            return input;
+        }
+    }
+    
+    /**
+     * Describe what happens to an asset which exceeded the budget.
+     * @return the description for the warning.
+     */
+    private String describeFallback() {
+        return fallback == null ? "it is not compressed" : "using " + fallback.getClass().getSimpleName() + " instead";
+    }
+}
@@ -0,0 +1,106 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   LocaleHelpersTest.java
+ * Created on October 19, 2026, 08:10 PM
+ */
+package dpt.statapp.compiler.helper;
+
+import dpt.statapp.compiler.config.Config;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks which locale keys are found in the pages and scripts, and that 
+ * a key which can only be known at runtime keeps the full locale.
+ * @author Daan Pape
+ */
+public class LocaleHelpersTest {
+    
+    /* The locale of the tests */
+    private static final String LOCALE = "var locale_en = {\"a\": \"A\", \"b\": \"B\", \"c\": \"C\"};";
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * Write a page or script to the temporary folder.
+     * @param name the file name.
+     * @param contents the file contents.
+     * @return the path of the file.
+     */
+    private Path write(String name, String contents) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes("UTF-8"));
+        return file.toPath();
+    }
+    
+    @Test
+    public void testLiteralKeys() throws IOException {
+        Path page = write("index.html", "<p data-i18n=\"a\"></p>");
+        Path script = write("app.js", "alert(i18n.t('b')); q.t(x);");
+        Set<String> keys = LocaleHelpers.collectKeys(Arrays.asList(page, script), new Config());
+        
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), keys);
+        assertEquals("var locale_en = {\"a\": \"A\",\"b\": \"B\"};", LocaleHelpers.shake("en.js", LOCALE, keys));
+    }
+    
+    @Test
+    public void testDynamicKeyKeepsFullLocale() throws IOException {
+        Path script = write("app.js", "alert(i18n.t('a'));\nalert(i18n.t(name));");
+        Set<String> keys = LocaleHelpers.collectKeys(Arrays.asList(script), new Config());
+        
+        assertNull(keys);
+        assertEquals(LOCALE, LocaleHelpers.shake("en.js", LOCALE, keys));
+    }
+    
+    @Test
+    public void testConfiguredFunction() throws IOException {
+        Config config = new Config();
+        config.localeFunction = "translator.t";
+        config.localeKeyPattern = Config.localeKeyPatternFor(config.localeFunction);
+        config.localeDynamicPattern = Config.localeDynamicPatternFor(config.localeFunction);
+        
+        /* A receiver which counts for literal keys also counts for dynamic ones */
+        Path literal = write("literal.js", "translator.t('a'); i18n.t('b');");
+        assertEquals(new HashSet<>(Arrays.asList("a")), LocaleHelpers.collectKeys(Arrays.asList(literal), config));
+        
+        Path dynamic = write("dynamic.js", "translator.t('a'); translator.t(name);");
+        assertNull(LocaleHelpers.collectKeys(Arrays.asList(literal, dynamic), config));
+    }
+}
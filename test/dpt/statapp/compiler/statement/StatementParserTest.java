@@ -0,0 +1,226 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   StatementParserTest.java
+ * Created on October 19, 2026, 08:30 PM
+ */
+package dpt.statapp.compiler.statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Compares the in place StatementParser with the substring and split based
+ * parser it replaced, and measures the statements parsed per second. 
+ * @author Daan Pape
+ */
+public class StatementParserTest {
+    
+    /* Statements which parse */
+    private static final String[] VALID = {
+        "partial(header.html)",
+        "partial( header.html )",
+        "partial()",
+        "script(app.js, global)",
+        "script( app.js ,global , async )",
+        "script(app.js, global,)",
+        "script(app.js, global, async,,)",
+        "style(main.css)",
+        "  style(main.css)\n",
+        "style(main.css) trailing"
+    };
+    
+    /* Statements which do not parse, including the argument count errors */
+    private static final String[] INVALID = {
+        "partial",
+        "partial(header.html",
+        "partial(a.html, b.html)",
+        "partial(,)",
+        "script(app.js)",
+        "script(a.js, global, async, more)",
+        "script(app.js, global, defer)",
+        "style(a.css, b.css)",
+        "style(,)",
+        "image(star.png)",
+        "Partial(header.html)"
+    };
+    
+    /**
+     * The parser before statements were scanned in place, the stages 
+     * trimmed the statement before passing it.
+     * @param statementString the statement.
+     * @return the parsed statement.
+     * @throws StatementParseException when the statement could not be parsed.
+     */
+    private static Statement parseLegacy(String statementString) throws StatementParseException {
+        statementString = statementString.trim();
+        int openParentheses = statementString.indexOf('(');
+        if(openParentheses == -1) {
+            throw new StatementParseException("[SYNTAX] Could not find opening parentheses", statementString);
+        }
+        int closingParentheses = statementString.indexOf(')', openParentheses);
+        if(closingParentheses == -1) {
+            throw new StatementParseException("[SYNTAX] Could not find closing parentheses", statementString);
+        }
+        
+        List<String> cleanArgs = new ArrayList<>();
+        for(String arg : statementString.substring(openParentheses + 1, closingParentheses).split(",")) {
+            cleanArgs.add(arg.trim());
+        }
+        String[] args = cleanArgs.toArray(new String[0]);
+        
+        switch(statementString.substring(0, openParentheses)) {
+            case "partial" :
+                if(args.length != 1) {
+                    throw new StatementParseException("Argument count mismatch for partial statement expected 1 got " + args.length, statementString);
+                }
+                return new Statement(StatementType.PARTIAL, args);
+            case "script" :
+                if(args.length != 2 && args.length != 3) {
+                    throw new StatementParseException("Argument count mismatch for partial statement expected 2 got " + args.length, statementString);
+                }
+                if(args.length == 3 && !args[2].equals("async")) {
+                    throw new StatementParseException("Unknown script option '" + args[2] + "', expected 'async'", statementString);
+                }
+                return new Statement(StatementType.SCRIPT, args);
+            case "style" :
+                if(args.length != 1) {
+                    throw new StatementParseException("Argument count mismatch for style statement expected 1 got " + args.length, statementString);
+                }
+                return new Statement(StatementType.STYLE, args);
+            default:
+                throw new StatementParseException("[SYNTAX] Unknown statement '" + statementString + "'", statementString);
+        }
+    }
+    
+    /**
+     * Parse a statement in place, inside a page the way the stages do.
+     * @param statementString the statement.
+     * @return the parsed statement.
+     * @throws StatementParseException when the statement could not be parsed.
+     */
+    private static Statement parseInPlace(String statementString) throws StatementParseException {
+        String page = "<p>{{" + statementString + "}}</p>";
+        return StatementParser.parseStatement(page, 5, 5 + statementString.length());
+    }
+    
+    @Test
+    public void testValidStatements() throws StatementParseException {
+        for(String statement : VALID) {
+            Statement expected = parseLegacy(statement);
+            Statement actual = parseInPlace(statement);
+            assertEquals(statement, expected.getType(), actual.getType());
+            assertEquals(statement, expected.getArgCount(), actual.getArgCount());
+            assertArrayEquals(statement, expected.getArgs(), actual.getArgs());
+        }
+    }
+    
+    @Test
+    public void testInvalidStatements() {
+        for(String statement : INVALID) {
+            String expected = null;
+            try {
+                parseLegacy(statement);
+                fail("The old parser accepted " + statement);
+            } catch (StatementParseException ex) {
+                expected = ex.getMessage();
+            }
+            
+            try {
+                parseInPlace(statement);
+                fail("The new parser accepted " + statement);
+            } catch (StatementParseException ex) {
+                assertEquals(expected, ex.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Parse the corpus a number of times with either parser. The in place
+     * parser reads the statements from the page, the old parser gets them
+     * cut out of the page the way the stages did.
+     * @param page the page holding the statements.
+     * @param offsets the start and end offset of every statement in the page.
+     * @param rounds the number of times the corpus is parsed.
+     * @param legacy true to use the old parser.
+     * @return the duration in nanoseconds.
+     */
+    private static long parseCorpus(String page, int[] offsets, int rounds, boolean legacy) throws StatementParseException {
+        long start = System.nanoTime();
+        int args = 0;
+        for(int round = 0; round < rounds; ++round) {
+            for(int i = 0; i < offsets.length; i += 2) {
+                Statement stmt = legacy ? parseLegacy(page.substring(offsets[i], offsets[i + 1])) : StatementParser.parseStatement(page, offsets[i], offsets[i + 1]);
+                args += stmt.getArg(0).length();
+            }
+        }
+        assertTrue(args > 0);
+        return System.nanoTime() - start;
+    }
+    
+    @Test
+    public void testBenchmark() throws StatementParseException {
+        /* A fixed corpus with the statement mix of a page: a few partials, many scripts and styles */
+        StringBuilder page = new StringBuilder();
+        int[] offsets = new int[800 * 2];
+        for(int i = 0; i < offsets.length / 2; ++i) {
+            page.append("<div>\n    {{");
+            offsets[i * 2] = page.length();
+            switch(i % 4) {
+                case 0 : page.append("partial(partials/section").append(i % 20).append(".html)"); break;
+                case 1 : page.append("script( js/module").append(i % 40).append(".js , global )"); break;
+                case 2 : page.append("script(js/vendor").append(i % 10).append(".js, page, async)"); break;
+                default : page.append(" style(css/component").append(i % 30).append(".css) "); break;
+            }
+            offsets[i * 2 + 1] = page.length();
+            page.append("}}\n</div>\n");
+        }
+        String contents = page.toString();
+        
+        /* Warm up both parsers, then take the best of a number of runs */
+        int rounds = 500;
+        parseCorpus(contents, offsets, rounds, true);
+        parseCorpus(contents, offsets, rounds, false);
+        long legacy = Long.MAX_VALUE, inPlace = Long.MAX_VALUE;
+        for(int run = 0; run < 7; ++run) {
+            legacy = Math.min(legacy, parseCorpus(contents, offsets, rounds, true));
+            inPlace = Math.min(inPlace, parseCorpus(contents, offsets, rounds, false));
+        }
+        
+        long statements = (long) offsets.length / 2 * rounds;
+        System.out.printf("StatementParser: %d statements/s in place, %d statements/s with substring and split%n", 
+                statements * 1000000000L / inPlace, statements * 1000000000L / legacy);
+        assertTrue("The in place parser is slower than the old parser", inPlace < legacy);
+    }
+}
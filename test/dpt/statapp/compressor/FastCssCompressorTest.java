@@ -0,0 +1,145 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   FastCssCompressorTest.java
+ * Created on October 19, 2026, 06:20 PM
+ */
+package dpt.statapp.compressor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Compares the FastCssCompressor with the YUI compressor it replaces. The
+ * outputs must be the same apart from the places where YUI produces longer
+ * or broken CSS, and the compression time must grow linearly. 
+ * @author Daan Pape
+ */
+public class FastCssCompressorTest {
+    
+    /* The style of the sample project */
+    private static final String SAMPLE = 
+            "/* main */\n" +
+            "body { margin: 0px; color: #ffffff; }\n" +
+            ".star { background: url(../images/star.png) no-repeat; width: 16px; height: 16px; }\n" +
+            ".dot { background-image: url(\"../images/dot.png\"); }\n" +
+            "@font-face { font-family: f; src: url(../fonts/tiny.woff); }\n" +
+            ".home { padding: 0.50em; }\n";
+    
+    /* Rules YUI compresses wrongly */
+    private static final String CALC = ".x { width: calc(100% - 10px); height: calc(1px + 2px * 3); }";
+    private static final String KEYFRAMES = "@keyframes spin { 0% { opacity: 0 } 100% { opacity: 1 } }";
+    private static final String NTH_CHILD = "li:nth-child(2n + 1) { color: red; } tr:nth-child( odd ) td { margin: 0 }";
+    
+    /**
+     * Compress a style with both compressors. 
+     * @param css the style.
+     * @return the YUI and the fast output.
+     */
+    private static String[] compress(String css) {
+        return new String[] {new CssCompressor().compress(css), new FastCssCompressor().compress(css)};
+    }
+    
+    @Test
+    public void testSampleProject() {
+        String[] out = compress(SAMPLE);
+        
+        /* YUI keeps the trailing zero of 0.50em */
+        assertEquals(out[0].replace(".50em", ".5em"), out[1]);
+        assertTrue(out[1].length() <= out[0].length());
+    }
+    
+    @Test
+    public void testCalc() {
+        String[] out = compress(CALC);
+        
+        /* YUI removes the spaces calc() needs around + */
+        assertEquals(".x{width:calc(100% - 10px);height:calc(1px + 2px * 3)}", out[1]);
+        assertEquals(out[0].replace("calc(1px+2px", "calc(1px + 2px"), out[1]);
+    }
+    
+    @Test
+    public void testKeyframes() {
+        String[] out = compress(KEYFRAMES);
+        
+        /* YUI shortens the 0% keyframe selector to 0, which browsers ignore */
+        assertEquals("@keyframes spin{0%{opacity:0}100%{opacity:1}}", out[1]);
+        assertEquals(out[0].replace("spin{0{", "spin{0%{"), out[1]);
+    }
+    
+    @Test
+    public void testNthChild() {
+        String[] out = compress(NTH_CHILD);
+        
+        /* The spaces inside the selector argument are kept, YUI removes them */
+        assertEquals("li:nth-child(2n + 1){color:red}tr:nth-child(odd) td{margin:0}", out[1]);
+        assertEquals(out[0].replace("(2n+1)", "(2n + 1)"), out[1]);
+    }
+    
+    @Test
+    public void testLinearTime() {
+        StringBuilder unit = new StringBuilder();
+        while(unit.length() < 256 * 1024) {
+            unit.append(SAMPLE).append(CALC).append(KEYFRAMES).append(NTH_CHILD);
+        }
+        
+        /* Warm up so the first size is not measured in the interpreter */
+        String css = unit.toString();
+        FastCssCompressor compressor = new FastCssCompressor();
+        for(int i = 0; i < 3; ++i) {
+            compressor.compress(css + css + css + css);
+        }
+        
+        /* Every doubling of the input should about double the time, a quadratic pass would quadruple it */
+        long previous = bestTime(compressor, css);
+        for(int doubling = 1; doubling <= 3; ++doubling) {
+            css = css + css;
+            long time = bestTime(compressor, css);
+            assertTrue(String.format("%d KB took %.1f ms, %.1f times the half size", css.length() / 1024, time / 1e6, (double) time / previous), 
+                    time < previous * 3);
+            previous = time;
+        }
+    }
+    
+    /**
+     * Measure the fastest of several compressions.
+     * @param compressor the compressor.
+     * @param css the style.
+     * @return the fastest time in nanoseconds.
+     */
+    private static long bestTime(Compressor compressor, String css) {
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < 7; ++i) {
+            long start = System.nanoTime();
+            compressor.compress(css);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
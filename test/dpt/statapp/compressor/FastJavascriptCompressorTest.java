@@ -0,0 +1,134 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   FastJavascriptCompressorTest.java
+ * Created on October 19, 2026, 08:50 PM
+ */
+package dpt.statapp.compressor;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Checks the FastJavascriptCompressor on the literals it must copy as
+ * written and on the whitespace it must keep: regular expressions against
+ * divisions, strings, template literals, operators which would merge and
+ * line breaks which end a statement. 
+ * @author Daan Pape
+ */
+public class FastJavascriptCompressorTest {
+    
+    /**
+     * Compress a script with the fast compressor.
+     * @param js the script.
+     * @return the compressed script.
+     */
+    private static String compress(String js) {
+        return new FastJavascriptCompressor().compress(js);
+    }
+    
+    @Test
+    public void testDivision() {
+        assertEquals("var a=(b)/2/c;", compress("var a = (b) / 2 / c;"));
+        assertEquals("x=y[0]/2;", compress("x = y[0] / 2;"));
+        assertEquals("a=b/c/d;", compress("a = b / c / d;"));
+        assertEquals("n=1.5/g;", compress("n = 1.5 / g;"));
+        assertEquals("i++/2;", compress("i++ / 2;"));
+        assertEquals("s=\"a\"/2;", compress("s = \"a\" / 2;"));
+    }
+    
+    @Test
+    public void testRegex() {
+        assertEquals("function f(s){return/x+/g.test(s);}", compress("function f(s) {\n    return /x+/g.test(s);\n}"));
+        assertEquals("t=typeof/x/;", compress("t = typeof /x/;"));
+        assertEquals("f(/a b/,/c/i);", compress("f( /a b/, /c/i );"));
+        assertEquals("if(a)/b/.exec(c);", compress("if (a) /b/.exec(c);"));
+        assertEquals("x=!/a/.test(b)", compress("x = ! /a/.test(b)"));
+        assertEquals("x=/a/ instanceof RegExp;", compress("x = /a/ instanceof RegExp;"));
+    }
+    
+    @Test
+    public void testRegexCharacterClass() {
+        assertEquals("var r=/[/]+/g,s=1;", compress("var r = /[/]+/g, s = 1;"));
+        assertEquals("r=/[\\]/]x/;", compress("r = /[\\]/]x/;"));
+        assertEquals("r=/\\/\\//;", compress("r = /\\/\\//;"));
+        assertEquals("r=/a*/;b=1;", compress("r = /a*/; // c\nb = 1;"));
+        assertEquals("r=/[*/]/;c=1;", compress("r = /[*/]/; /* c */ c = 1;"));
+    }
+    
+    @Test
+    public void testTemplateLiterals() {
+        assertEquals("var s=`a ${b?`c ${d} e`:{f:1}.f} g`;", compress("var s = `a ${ b ? `c ${ d } e` : { f: 1 }.f } g`;"));
+        assertEquals("s=`// no comment ${x} /* kept */`;", compress("s = `// no comment ${ x } /* kept */`;"));
+        assertEquals("s=`a\\`b \\${c}`;", compress("s = `a\\`b \\${c}`;"));
+        assertEquals("s=`line\n  two`;", compress("s = `line\n  two`;"));
+        assertEquals("f(`${a}${b}`)", compress("f( `${ a }${ b }` )"));
+    }
+    
+    @Test
+    public void testStrings() {
+        assertEquals("var s=\"a \\\" // b\",t='c \\' /* d */';", compress("var s = \"a \\\" // b\", t = 'c \\' /* d */';"));
+        assertEquals("s='a  b';", compress("s = 'a  b';"));
+        assertEquals("s=\"/x/\"+'\\\\';", compress("s = \"/x/\" + '\\\\';"));
+        assertEquals("s='a\\\nb';", compress("s = 'a\\\nb';"));
+    }
+    
+    @Test
+    public void testOperatorSpacing() {
+        assertEquals("a+ +b;", compress("a + +b;"));
+        assertEquals("a- -b;", compress("a - -b;"));
+        assertEquals("a+ ++b;", compress("a + ++b;"));
+        assertEquals("a- --b;", compress("a - --b;"));
+        assertEquals("a+-b;", compress("a + -b;"));
+        assertEquals("a++ +b;", compress("a++ + b;"));
+        assertEquals("a< !b;", compress("a < !b;"));
+        assertEquals("a-- >b;", compress("a-- > b;"));
+        assertEquals("x=1 .toString();", compress("x = 1 .toString();"));
+        assertEquals("var a=new Date;", compress("var a = new Date;"));
+    }
+    
+    @Test
+    public void testAutomaticSemicolonInsertion() {
+        assertEquals("a=b\n++c", compress("a = b\n++c"));
+        assertEquals("return\nx", compress("return\nx"));
+        assertEquals("x=1\ny=2", compress("x = 1\ny = 2"));
+        assertEquals("i++\nj", compress("i++\nj"));
+        assertEquals("a=b\n(c)", compress("a = b\n(c)"));
+        assertEquals("a=b\n[c]", compress("a = b\n[c]"));
+        assertEquals("a=b;c=d;", compress("a = b;\nc = d;\n"));
+        assertEquals("if(a){b()}", compress("if (a) {\n    b()\n}\n"));
+        assertEquals("a=b\nc", compress("a = b /* x\n */ c"));
+        assertEquals("a=[1,2]", compress("a = [\n    1,\n    2\n]"));
+    }
+    
+    @Test
+    public void testComments() {
+        assertEquals("/*! licence */a=1;", compress("/*! licence */\na = 1; // note\n/* block */"));
+        assertEquals("a=1;", compress("// only\na = 1;"));
+    }
+}
@@ -0,0 +1,141 @@
+/* 
+ * Copyright (c) 2016, Daan Pape
+ * Company: DPTechnics
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     1. Redistributions of source code must retain the above copyright 
+ *        notice, this list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright 
+ *        notice, this list of conditions and the following disclaimer in the 
+ *        documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * File:   HtmlCompressorTest.java
+ * Created on October 19, 2026, 09:10 PM
+ */
+package dpt.statapp.compressor;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Checks the HtmlCompressor with every profile: the raw elements, the 
+ * comments, the attribute quotes and the whitespace it keeps or removes.
+ * The fast compressors compress the inline scripts and styles.
+ * @author Daan Pape
+ */
+public class HtmlCompressorTest {
+    
+    /* A page with every construct the profiles handle differently */
+    private static final String PAGE = 
+            "<!DOCTYPE html>\n" +
+            "<html>\n" +
+            "<head>\n" +
+            "    <title> My   page </title>\n" +
+            "    <meta charset=\"utf-8\">\n" +
+            "    <!-- head comment -->\n" +
+            "</head>\n" +
+            "<body>\n" +
+            "    <div class=\"main\">\n" +
+            "        <p>  Hello   <b>big</b>  world </p>\n" +
+            "    </div>\n" +
+            "</body>\n" +
+            "</html>\n";
+    
+    /**
+     * Compress a page with a profile.
+     * @param profile the profile.
+     * @param html the page.
+     * @return the compressed page.
+     */
+    private static String compress(HtmlProfile profile, String html) {
+        return new HtmlCompressor(profile, new FastJavascriptCompressor(), new FastCssCompressor()).compress(html);
+    }
+    
+    @Test
+    public void testDevKeepsPage() {
+        assertEquals(PAGE, compress(HtmlProfile.DEV, PAGE));
+    }
+    
+    @Test
+    public void testSafeCollapsesWhitespace() {
+        assertEquals("<!DOCTYPE html> <html> <head> <title> My page </title> <meta charset=\"utf-8\"> <!-- head comment --> </head> " 
+                + "<body> <div class=\"main\"> <p> Hello <b>big</b> world </p> </div> </body> </html>", compress(HtmlProfile.SAFE, PAGE));
+    }
+    
+    @Test
+    public void testAggressiveRemovesBlockWhitespace() {
+        assertEquals("<!DOCTYPE html><html><head><title>My page</title><meta charset=utf-8></head>" 
+                + "<body><div class=main><p>Hello <b>big</b> world</p></div></body></html>", compress(HtmlProfile.AGGRESSIVE, PAGE));
+    }
+    
+    @Test
+    public void testRawElementsKeptAsWritten() {
+        String raw = "<pre>  a\n    b  </pre><textarea>  c   d </textarea>";
+        assertEquals(raw, compress(HtmlProfile.SAFE, raw));
+        assertEquals(raw, compress(HtmlProfile.AGGRESSIVE, raw));
+        
+        String inline = "<script>\n  var a = 1 ;\n</script><style>\n  p { color : red ; }\n</style>";
+        assertEquals(inline, compress(HtmlProfile.SAFE, inline));
+        assertEquals("<script>var a=1;</script><style>p{color:red}</style>", compress(HtmlProfile.AGGRESSIVE, inline));
+        
+        /* Scripts which are no Javascript are never compressed */
+        String template = "<script type=\"text/template\">  <b> x </b>  </script>";
+        assertEquals("<script type=text/template>  <b> x </b>  </script>", compress(HtmlProfile.AGGRESSIVE, template));
+    }
+    
+    @Test
+    public void testComments() {
+        String html = "<p>a <!-- note --> b</p><!--[if IE]><p>ie</p><![endif]--><!--! licence -->";
+        assertEquals(html, compress(HtmlProfile.DEV, html));
+        assertEquals(html, compress(HtmlProfile.SAFE, html));
+        assertEquals("<p>a b</p><!--[if IE]><p>ie</p><![endif]--><!--! licence -->", compress(HtmlProfile.AGGRESSIVE, html));
+    }
+    
+    @Test
+    public void testQuotes() {
+        String html = "<a href=\"/x\" class=\"a b\" title=\"\" data-x=\"a=b\" rel='next'>x</a><a href=\"dir/\">y</a><img src=\"a.png\"/>";
+        assertEquals(html, compress(HtmlProfile.SAFE, html));
+        assertEquals("<a href=/x class=\"a b\" title=\"\" data-x=\"a=b\" rel=next>x</a><a href=\"dir/\">y</a><img src=\"a.png\"/>", 
+                compress(HtmlProfile.AGGRESSIVE, html));
+    }
+    
+    @Test
+    public void testInlineWhitespace() {
+        String html = "<div>\n  <span>a</span> <span>b</span>\n  <em>c</em>\n</div>";
+        assertEquals("<div> <span>a</span> <span>b</span> <em>c</em> </div>", compress(HtmlProfile.SAFE, html));
+        assertEquals("<div><span>a</span> <span>b</span> <em>c</em></div>", compress(HtmlProfile.AGGRESSIVE, html));
+    }
+    
+    @Test
+    public void testElementsWhichRenderNothing() {
+        /* The whitespace around a script in running text still separates the words */
+        String html = "<p>Call us <script>track()</script> today <template><i>x</i></template> or <noscript>never</noscript> later</p>";
+        assertEquals(html, compress(HtmlProfile.AGGRESSIVE, html));
+    }
+    
+    @Test
+    public void testHeadWhitespace() {
+        String html = "<head>\n  <title>\n    Title\n  </title>\n  <link rel=\"stylesheet\" href=\"a.css\">\n  <script src=\"a.js\"></script>\n</head>\n<body>\n  <p>a</p>\n</body>";
+        assertEquals("<head> <title> Title </title> <link rel=\"stylesheet\" href=\"a.css\"> <script src=\"a.js\"></script> </head> <body> <p>a</p> </body>", 
+                compress(HtmlProfile.SAFE, html));
+        assertEquals("<head><title>Title</title><link rel=stylesheet href=a.css><script src=a.js></script></head><body><p>a</p></body>", 
+                compress(HtmlProfile.AGGRESSIVE, html));
+    }
+}